@@ -0,0 +1,69 @@
+#!/usr/bin/env python3
+# Copyright 2020 IBM Corporation
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#   http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+"""Compare two JMH JSON result files, e.g. from the main branch and a feature branch.
+
+Usage: compare.py BASELINE.json CANDIDATE.json [THRESHOLD_PERCENT]
+
+Prints the change in score for every benchmark and parameter combination present in both files,
+and exits with status 1 if any of them regressed by more than the threshold (default 10%).
+"""
+
+import json
+import sys
+
+
+def load(path):
+    with open(path) as f:
+        results = {}
+        for result in json.load(f):
+            params = ",".join("%s=%s" % kv for kv in sorted(result.get("params", {}).items()))
+            key = result["benchmark"].rsplit(".", 2)[-2:]
+            key = ".".join(key) + ("(" + params + ")" if params else "")
+            metric = result["primaryMetric"]
+            results[key] = (result["mode"], metric["score"], metric["scoreError"], metric["scoreUnit"])
+        return results
+
+
+def main(argv):
+    if len(argv) < 3:
+        sys.stderr.write(__doc__)
+        return 2
+    baseline, candidate = load(argv[1]), load(argv[2])
+    threshold = float(argv[3]) if len(argv) > 3 else 10.0
+
+    regressions = 0
+    for key in sorted(set(baseline) & set(candidate)):
+        mode, before, _, unit = baseline[key]
+        _, after, error, _ = candidate[key]
+        if before == 0:
+            continue
+        change = (after - before) / before * 100.0
+        # Throughput is better when higher, every other mode when lower
+        worse = -change if mode == "thrpt" else change
+        flag = ""
+        if worse > threshold:
+            flag = "  REGRESSION"
+            regressions += 1
+        print("%-90s %12.3f -> %12.3f ± %.3f %s %+7.1f%%%s" % (key, before, after, error, unit, change, flag))
+
+    for key in sorted(set(baseline) ^ set(candidate)):
+        print("%-90s only in %s" % (key, argv[1] if key in baseline else argv[2]))
+
+    return 1 if regressions else 0
+
+
+if __name__ == "__main__":
+    sys.exit(main(sys.argv))
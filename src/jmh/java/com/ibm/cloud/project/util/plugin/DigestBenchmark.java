@@ -0,0 +1,87 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * File digests by size, read strategy and algorithm. The file stays in the page cache, so this
+ * measures hashing and copying rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DigestBenchmark {
+
+  @Param({ "4096", "262144", "16777216", "134217728" })
+  long size;
+
+  // AUTO is MojoUtil.getDigest, e.g. getMD5Digest for MD5, choosing the strategy by size
+  @Param({ "AUTO", "HEAP", "CHANNEL", "MAPPED" })
+  String strategy;
+
+  @Param({ "MD5", "SHA256", "XXH64", "CRC32C" })
+  DigestAlgorithm algorithm;
+
+  File file;
+
+  @Setup(Level.Trial)
+  public void createFile() throws IOException {
+    file = Files.createTempFile("digest", ".bin").toFile();
+    byte[] block = new byte[65536];
+    new Random(size).nextBytes(block);
+    try( OutputStream out = Files.newOutputStream(file.toPath()) ) {
+      for( long written = 0; written < size; written += block.length )
+        out.write(block, 0, (int) Math.min(block.length, size - written));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteFile() {
+    file.delete();
+  }
+
+  @Benchmark
+  public Object digest() throws IOException, NoSuchAlgorithmException {
+    if( strategy.equals("AUTO") )
+      return MojoUtil.getDigest(file, algorithm);
+    DigestProvider.Hasher hasher = algorithm.newHasher();
+    DigestEngine.update(hasher, file, DigestEngine.Strategy.valueOf(strategy));
+    return hasher.digest();
+  }
+}
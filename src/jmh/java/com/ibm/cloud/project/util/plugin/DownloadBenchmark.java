@@ -0,0 +1,91 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@link MojoUtil#downloadText} against a loopback HTTP server, so that connection reuse and 
+ * body decoding are measured without any network latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownloadBenchmark {
+
+  @Param({ "4096", "262144" })
+  int size;
+
+  HttpServer server;
+  ExecutorService executor;
+  URL url;
+
+  @Setup(Level.Trial)
+  public void startServer() throws IOException {
+    byte[] body = new byte[size];
+    Arrays.fill(body, (byte) 'x');
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", exchange -> {
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+      exchange.sendResponseHeaders(200, body.length);
+      try( OutputStream out = exchange.getResponseBody() ) {
+        out.write(body);
+      }
+    });
+    executor = Executors.newFixedThreadPool(4);
+    server.setExecutor(executor);
+    server.start();
+    url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/body.txt");
+  }
+
+  @TearDown(Level.Trial)
+  public void stopServer() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public String downloadText() throws IOException {
+    return MojoUtil.downloadText(url);
+  }
+}
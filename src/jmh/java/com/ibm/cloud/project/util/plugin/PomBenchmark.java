@@ -0,0 +1,99 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.shared.transfer.artifact.ArtifactCoordinate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * POM coordinate extraction from the small test POM and from a generated POM with thousands of 
+ * dependencies, where the coordinates come first and the parent last.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PomBenchmark {
+
+  @Param({ "small", "large" })
+  String pom;
+
+  String pomPath;
+  Path generated;
+
+  @Setup(Level.Trial)
+  public void createPom() throws IOException {
+    if( pom.equals("small") ) {
+      pomPath = "src/test/resources/testcase-parent-pom.xml";
+      return;
+    }
+
+    generated = Files.createTempFile("pom", ".xml");
+    try( Writer writer = Files.newBufferedWriter(generated, StandardCharsets.UTF_8) ) {
+      writer.write("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+      writer.write("  <modelVersion>4.0.0</modelVersion>\n");
+      writer.write("  <groupId>dev.appsody</groupId>\n  <artifactId>large</artifactId>\n  <version>1.0.0</version>\n");
+      writer.write("  <dependencies>\n");
+      for( int k=0; k<5000; ++k )
+        writer.write("    <dependency><groupId>org.example.g" + k + "</groupId><artifactId>a" + k 
+                + "</artifactId><version>1." + k + "</version><scope>compile</scope></dependency>\n");
+      writer.write("  </dependencies>\n");
+      writer.write("  <parent><groupId>dev.appsody</groupId><artifactId>spring-boot2-stack</artifactId><version>[0.3, 0.4)</version></parent>\n");
+      writer.write("</project>\n");
+    }
+    pomPath = generated.toString();
+  }
+
+  @TearDown(Level.Trial)
+  public void deletePom() throws IOException {
+    if( generated != null )
+      Files.delete(generated);
+  }
+
+  @Benchmark
+  public ArtifactCoordinate pomCoordinate() throws MojoExecutionException {
+    return MojoUtil.getPomCoordinate(pomPath);
+  }
+
+  /**
+   * Reads the whole large POM, since its parent comes last.
+   */
+  @Benchmark
+  public ArtifactCoordinate parentPomCoordinate() throws MojoExecutionException {
+    return MojoUtil.getParentPomCoordinate(pom.equals("small") ? "src/test/resources/testcase-pom.xml" : pomPath);
+  }
+}
@@ -0,0 +1,59 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+
+/**
+ * Version range checks through {@link MojoUtil#verifyVersion}, against parsing both with OSGi on 
+ * every call as the plugin originally did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VersionBenchmark {
+
+  @Param({ "[0.3, 0.4)", "[1.0.0,2.0.0]", "(0.9.9,1.2.3)", "1.0", "[2.5.7.RELEASE,3)" })
+  String range;
+
+  @Param({ "0.3.9", "1.2.3", "2.5.7.RELEASE" })
+  String version;
+
+  @Benchmark
+  public boolean verifyVersion() {
+    return MojoUtil.verifyVersion(version, range);
+  }
+
+  @Benchmark
+  public boolean osgiVersionRange() {
+    return new VersionRange(range).includes(new Version(version));
+  }
+}
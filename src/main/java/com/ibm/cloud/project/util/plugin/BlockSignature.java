@@ -0,0 +1,279 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * The block signature of a reference file, for rsync style repair of a local copy: a weak rolling 
+ * checksum and a strong MD5 digest of each fixed-size block.
+ * <p>{@link #match(File)} slides a window over the local file, one byte at a time, looking up the 
+ * rolling checksum of each window, so that unchanged blocks are found even if content was inserted or
+ * removed before them. Only the blocks without a match need to be fetched.</p>
+ * <p>A signature is written as a header line, <code>blocksig&lt;TAB&gt;block size&lt;TAB&gt;file size</code>, 
+ * then one <code>weak&lt;TAB&gt;strong</code> line of hex per block.</p>
+ */
+public class BlockSignature {
+
+  static final String HEADER = "blocksig";
+  static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+  // Local read buffer, in blocks, so that a window can usually slide without a refill
+  private static final int BUFFER_BLOCKS = 16;
+
+  final int blockSize;
+  final long size;
+  final int[] weak;
+  final byte[][] strong;
+
+  BlockSignature(int blockSize, long size, int[] weak, byte[][] strong) {
+    this.blockSize = blockSize;
+    this.size = size;
+    this.weak = weak;
+    this.strong = strong;
+  }
+
+  protected int getBlockCount() {
+    return weak.length;
+  }
+
+  protected long blockOffset(int block) {
+    return (long) block * blockSize;
+  }
+
+  protected int blockLength(int block) {
+    return (int) Math.min(blockSize, size - blockOffset(block));
+  }
+
+  protected static BlockSignature generate(File file, int blockSize) throws IOException, NoSuchAlgorithmException {
+
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    long size = file.length();
+    int count = (int) ((size + blockSize - 1) / blockSize);
+    int[] weak = new int[count];
+    byte[][] strong = new byte[count][];
+
+    byte[] block = new byte[blockSize];
+    try( InputStream in = Files.newInputStream(file.toPath()) ) {
+      for( int k = 0; k < count; ++k ) {
+        int length = (int) Math.min(blockSize, size - (long) k * blockSize);
+        int filled = 0;
+        while( filled < length ) {
+          int n = in.read(block, filled, length - filled);
+          if( n < 0 )
+            throw new IOException("File truncated while reading: "+file);
+          filled += n;
+        }
+        weak[k] = weak(block, 0, length);
+        md5.update(block, 0, length);
+        strong[k] = md5.digest();
+      }
+    }
+    return new BlockSignature(blockSize, size, weak, strong);
+  }
+
+  protected void write(Writer writer) throws IOException {
+    writer.write(HEADER + "\t" + blockSize + "\t" + size + "\n");
+    for( int k = 0; k < weak.length; ++k )
+      writer.write(String.format("%08X\t%s%n", weak[k], DatatypeConverter.printHexBinary(strong[k])));
+  }
+
+  protected static BlockSignature read(Reader reader) throws IOException {
+
+    BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    String header = lines.readLine();
+    String[] fields = header != null ? header.trim().split("\t") : new String[0];
+    if( fields.length != 3 || ! fields[0].equals(HEADER) )
+      throw new IOException("Not a block signature: "+header);
+
+    try {
+      int blockSize = Integer.parseInt(fields[1]);
+      long size = Long.parseLong(fields[2]);
+      if( blockSize <= 0 || size < 0 )
+        throw new IOException("Malformed block signature: "+header);
+      int count = (int) ((size + blockSize - 1) / blockSize);
+      int[] weak = new int[count];
+      byte[][] strong = new byte[count][];
+      for( int k = 0; k < count; ++k ) {
+        String line = lines.readLine();
+        if( line == null )
+          throw new IOException("Block signature truncated at block "+k);
+        String[] sums = line.trim().split("\t");
+        weak[k] = (int) Long.parseLong(sums[0], 16);
+        strong[k] = DatatypeConverter.parseHexBinary(sums[1]);
+      }
+      return new BlockSignature(blockSize, size, weak, strong);
+    }
+    catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Malformed block signature", e);
+    }
+  }
+
+  /**
+   * The rsync weak checksum: the sum of the bytes, and the sum of those running sums, each modulo 2^16.
+   */
+  protected static int weak(byte[] data, int offset, int length) {
+    int a = 0;
+    int b = 0;
+    for( int k = 0; k < length; ++k ) {
+      a += data[offset + k] & 0xff;
+      b += a;
+    }
+    return (a & 0xffff) | (b << 16);
+  }
+
+  /**
+   * For each block of the reference, the offset of an identical block in <code>local</code>, or -1.
+   */
+  protected long[] match(File local) throws IOException, NoSuchAlgorithmException {
+
+    long[] found = new long[weak.length];
+    Arrays.fill(found, -1);
+    if( weak.length == 0 )
+      return found;
+
+    // Full-size blocks by weak checksum; the short last block is matched separately
+    int last = weak.length - 1;
+    int full = blockLength(last) == blockSize ? weak.length : last;
+    Map<Integer,List<Integer>> blocks = new HashMap<Integer,List<Integer>>();
+    for( int k = 0; k < full; ++k )
+      blocks.computeIfAbsent(weak[k], w -> new ArrayList<Integer>(1)).add(k);
+
+    MessageDigest md5 = MessageDigest.getInstance("MD5");
+    try( FileChannel channel = FileChannel.open(local.toPath(), StandardOpenOption.READ) ) {
+      Window window = new Window(channel, blockSize);
+      long localSize = channel.size();
+      int unmatched = full;
+
+      long position = 0;
+      boolean fresh = true;
+      int a = 0;
+      int b = 0;
+      while( unmatched > 0 && position + blockSize <= localSize ) {
+        int offset = window.fill(position);
+        byte[] buff = window.buff;
+        if( fresh ) {
+          int sum = weak(buff, offset, blockSize);
+          a = sum & 0xffff;
+          b = sum >>> 16;
+          fresh = false;
+        }
+
+        List<Integer> candidates = blocks.get((a & 0xffff) | (b << 16));
+        boolean matched = false;
+        if( candidates != null ) {
+          md5.update(buff, offset, blockSize);
+          byte[] digest = md5.digest();
+          for( int k : candidates ) {
+            if( found[k] < 0 && Arrays.equals(digest, strong[k]) ) {
+              found[k] = position;
+              --unmatched;
+              matched = true;
+            }
+          }
+        }
+
+        if( matched ) {
+          position += blockSize;
+          fresh = true;
+          continue;
+        }
+
+        if( position + blockSize >= localSize )
+          break;
+        // Roll the window one byte forward
+        int out = buff[offset] & 0xff;
+        int in = buff[offset + blockSize] & 0xff;
+        a = (a - out + in) & 0xffff;
+        b = (b - blockSize * out + a) & 0xffff;
+        ++position;
+      }
+
+      if( full < weak.length ) {
+        // The short last block, usually still at the end of the file, or at its original offset
+        int length = blockLength(last);
+        for( long candidate : new long[] { localSize - length, blockOffset(last) } ) {
+          if( candidate < 0 || candidate + length > localSize )
+            continue;
+          int offset = window.fill(candidate);
+          md5.update(window.buff, offset, length);
+          if( Arrays.equals(md5.digest(), strong[last]) ) {
+            found[last] = candidate;
+            break;
+          }
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * A buffered view of a file, so that a block-size window at any position can be read from an array.
+   */
+  private static class Window {
+
+    private final FileChannel channel;
+    private final long size;
+    private final int blockSize;
+    final byte[] buff;
+    private long start = 0;
+    private int length = 0;
+
+    Window(FileChannel channel, int blockSize) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      this.blockSize = blockSize;
+      this.buff = new byte[blockSize * BUFFER_BLOCKS + 1];
+    }
+
+    /**
+     * Make the window at <code>position</code>, plus one following byte if there is one, available
+     * in the buffer, returning its offset there.
+     */
+    int fill(long position) throws IOException {
+      long needed = Math.min(position + blockSize + 1, size);
+      if( position < start || needed > start + length ) {
+        start = position;
+        length = 0;
+        ByteBuffer target = ByteBuffer.wrap(buff);
+        while( target.hasRemaining() ) {
+          int n = channel.read(target, start + length);
+          if( n < 0 )
+            break;
+          length += n;
+        }
+      }
+      return (int) (position - start);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The training run of the <code>cds</code> build profile, which archives the classes loaded here for 
+ * {@link ProjectUtilMain}. One run exercises each goal commonly run without Maven: <code>gen-cksum</code>, 
+ * <code>check-version</code>, with the OSGi version classes, and <code>verify-file</code> over a loopback 
+ * HTTP server, with the HTTP transport.
+ */
+public class CdsTraining {
+
+  public static void main(String[] args) throws IOException, NoSuchAlgorithmException {
+
+    Path dir = Files.createTempDirectory("project-util-cds");
+    Path file = dir.resolve("pom.xml");
+    Files.write(file, "<project/>\n".getBytes(StandardCharsets.UTF_8));
+    byte[] cksum = MojoUtil.getMD5Digest(file.toFile()).getBytes(StandardCharsets.UTF_8);
+
+    HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/pom.xml.md5", exchange -> {
+      exchange.sendResponseHeaders(200, cksum.length);
+      try( OutputStream out = exchange.getResponseBody() ) {
+        out.write(cksum);
+      }
+    });
+    server.start();
+    try {
+      String cksumURL = "http://127.0.0.1:" + server.getAddress().getPort() + "/pom.xml.md5";
+      run("gen-cksum", "file_path=" + file, "algorithm=sha256");
+      run("gen-cksum", "file_path=" + file);
+      run("check-version", "range_spec=[0.3,0.4)", "version=0.3.7");
+      run("verify-file", "file_path=" + file, "cksum_url=" + cksumURL);
+    }
+    finally {
+      server.stop(0);
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  private static void run(String... args) {
+    if( ProjectUtilMain.run(args) != DaemonProtocol.SUCCESS )
+      throw new IllegalStateException("Training run failed: " + String.join(" ", args));
+  }
+}
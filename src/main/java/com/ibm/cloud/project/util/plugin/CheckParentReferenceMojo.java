@@ -14,13 +14,22 @@
  */    
 package com.ibm.cloud.project.util.plugin;
 
-import static com.ibm.cloud.project.util.plugin.MojoUtil.getParentPomCoordinate;
-import static com.ibm.cloud.project.util.plugin.MojoUtil.getPomCoordinate;
 import static com.ibm.cloud.project.util.plugin.MojoUtil.verifyFolderExists;
 import static com.ibm.cloud.project.util.plugin.MojoUtil.verifyVersion;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
@@ -51,6 +60,18 @@ import org.apache.maven.shared.transfer.project.install.ProjectInstallerRequest;
  *  <br>  -Dchild_path=testcase-pom.xml \
  *  <br>  -Dmaven.repo.local=/mvn/repository
  *  </code></p>
+ *  <p>Instead of <code>child_path</code>, <code>root_dir</code> and/or <code>modules</code> check many child POMs in 
+ *  one invocation. The parent is resolved or installed once, the children are checked in parallel, and 
+ *  every failure is reported together:
+ *  <ul>
+ *  <li><b>root_dir</b> A directory searched for child pom.xml files, skipping "target" and hidden directories
+ *  <li><b>modules</b> A comma separated list of module directories or POM files, relative to root_dir if given
+ *  <li><b>threads</b> The number of threads checking child POMs (optional, default=available processors)
+ *  </ul>
+ *  <p>Also:
+ *  <ul>
+ *  <li><b>metrics_file</b> A file to write a JSON summary of timings, bytes and cache hits to (optional)
+ *  </ul>
  *  <p>Note: This does not require a Maven project context, and moreover cannot be run from a working 
  *  directory containing a "pom.xml" file. </p> 
  */
@@ -60,9 +81,21 @@ public class CheckParentReferenceMojo extends AbstractMojo {
   @Parameter(property = "parent_path", required = true )
   private String parentPath;
 
-  @Parameter(property = "child_path", required = true )
+  @Parameter(property = "child_path", required = false )
   private String childPath;
 
+  @Parameter(property = "root_dir", required = false )
+  private String rootDir;
+
+  @Parameter(property = "modules", required = false )
+  private String modules;
+
+  @Parameter(property = "threads")
+  private int threads;
+
+  @Parameter(property = "metrics_file")
+  private String metricsFile;
+
   @Parameter( defaultValue = "${session}", required = true, readonly = true )
   private MavenSession session;
 
@@ -82,43 +115,79 @@ public class CheckParentReferenceMojo extends AbstractMojo {
   
   public void execute() throws MojoExecutionException, MojoFailureException {
 
+    ExecutionMetrics metrics = ExecutionMetrics.start("check-parent-pom");
+    try {
+      checkParentPom();
+      metrics.succeeded();
+    }
+    finally {
+      metrics.finish(metricsFile, getLog());
+    }
+  }
+
+  private void checkParentPom() throws MojoExecutionException, MojoFailureException {
+
     String mavenRepoPath = session.getLocalRepository().getBasedir();
             
     // Verify Maven repository exists
     if( ! verifyFolderExists(mavenRepoPath) )
       throw new MojoExecutionException(MessageFormat.format(Messages.get(Messages.MISSING_REPO), mavenRepoPath));
     
+    // Parsed POMs and resolved parents are shared by every module of a reactor build
+    SessionCache cache = SessionCache.get(session);
+
     // Verify POM coordinate exists in parent pom.xml
-    ArtifactCoordinate parentCoordinate = getPomCoordinate(parentPath);
+    ArtifactCoordinate parentCoordinate = cache.getPomCoordinate(parentPath);
     getLog().info(MessageFormat.format(Messages.get(Messages.FOUND_PARENT_POM_COORDINATE), parentCoordinate));
 
-    // Check for installed parent POM
+    // Check for installed parent POM, first directly in the local repository layout
     boolean installRequired = false;
     ProjectBuildingRequest buildingRequest = session.getProjectBuildingRequest();
-    try {      
-      ArtifactResult artifactResult = artifactResolver.resolveArtifact(buildingRequest, parentCoordinate);
-      getLog().info(MessageFormat.format(Messages.get(Messages.FOUND_PARENT_POM), artifactResult.getArtifact().getFile().toString()));
+    Path installedPom = LocalRepository.pomPath(Paths.get(mavenRepoPath), parentCoordinate);
+    if( Files.isRegularFile(installedPom) ) {
+      getLog().info(MessageFormat.format(Messages.get(Messages.FOUND_PARENT_POM), installedPom.toString()));
     }
-    catch (ArtifactResolverException e) {
-      installRequired = true;
+    else {
+      try {      
+        ArtifactResult artifactResult = cache.resolveArtifact(artifactResolver, buildingRequest, parentCoordinate);
+        getLog().info(MessageFormat.format(Messages.get(Messages.FOUND_PARENT_POM), artifactResult.getArtifact().getFile().toString()));
+      }
+      catch (ArtifactResolverException e) {
+        installRequired = true;
+      }
     }
     
-    // Install parent POM
+    // Install parent POM, copying it into place unless it needs the project builder
     if( installRequired ) {
-      try {
+      try( ExecutionMetrics.Timer timer = ExecutionMetrics.current().time(ExecutionMetrics.Phase.INSTALL) ) {
         getLog().info(MessageFormat.format(Messages.get(Messages.INSTALLING_PARENT_POM), parentPath));
-        ProjectBuildingResult projectBuildingResult = projectBuilder.build( new File(parentPath), buildingRequest );
-        ProjectInstallerRequest projectInstallerRequest = new ProjectInstallerRequest();
-        projectInstallerRequest.setProject( projectBuildingResult.getProject() );
-        projectInstaller.install( buildingRequest, projectInstallerRequest );
+        if( LocalRepository.isPlainPom(parentCoordinate) ) {
+          LocalRepository.installPom(Paths.get(mavenRepoPath), parentCoordinate, Paths.get(parentPath));
+        }
+        else {
+          ProjectBuildingResult projectBuildingResult = projectBuilder.build( new File(parentPath), buildingRequest );
+          ProjectInstallerRequest projectInstallerRequest = new ProjectInstallerRequest();
+          projectInstallerRequest.setProject( projectBuildingResult.getProject() );
+          projectInstaller.install( buildingRequest, projectInstallerRequest );
+        }
+        cache.forget(buildingRequest, parentCoordinate);
       }
       catch (Exception e) {
         throw new MojoExecutionException(MessageFormat.format(Messages.get(Messages.POM_INSTALL_FAIL), parentPath, mavenRepoPath), e);
       }
     }
     
+    if( rootDir != null || modules != null ) {
+      checkChildPoms(parentCoordinate, cache);
+      return;
+    }
+    if( childPath == null )
+      throw new MojoExecutionException(Messages.get(Messages.MISSING_CHILD_POM));
+
     // Verify parent reference exists in pom.xml
-    ArtifactCoordinate parentReferenceCoordinate = getParentPomCoordinate(childPath);
+    ArtifactCoordinate parentReferenceCoordinate = cache.getParentPomCoordinate(childPath);
+    getLog().debug(String.format("Session cache hits: %d, misses: %d", cache.getHits(), cache.getMisses()));
+    ExecutionMetrics.current().cache("session", cache.getHits(), cache.getMisses());
     getLog().info(MessageFormat.format(Messages.get(Messages.VERIFIED_PARENT_POM_REF), parentReferenceCoordinate));
 
     // Verify referenced parent matches expected parent 
@@ -139,4 +208,106 @@ public class CheckParentReferenceMojo extends AbstractMojo {
     
     return;
   }
-}
\ No newline at end of file
+
+  private void checkChildPoms(ArtifactCoordinate parentCoordinate, SessionCache cache) throws MojoExecutionException, MojoFailureException {
+
+    List<Path> children;
+    try {
+      children = findChildPoms(rootDir, modules, Paths.get(parentPath));
+    }
+    catch (IOException e) {
+      throw new MojoExecutionException("Check Parent POM", e);
+    }
+
+    // One failure description, or null, per child
+    List<String> failures;
+    ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    try {
+      failures = pool.submit(() -> children.parallelStream()
+              .map(child -> checkChildPom(parentCoordinate, child.toString(), cache))
+              .collect(Collectors.toList())).get();
+    }
+    catch (Exception e) {
+      throw new MojoExecutionException("Check Parent POM", e);
+    }
+    finally {
+      pool.shutdownNow();
+    }
+    getLog().debug(String.format("Session cache hits: %d, misses: %d", cache.getHits(), cache.getMisses()));
+    ExecutionMetrics.current().cache("session", cache.getHits(), cache.getMisses());
+
+    StringBuilder report = new StringBuilder();
+    int failed = 0;
+    for( String failure : failures ) {
+      if( failure == null )
+        continue;
+      report.append("\n  ").append(failure);
+      ++failed;
+    }
+
+    if( failed > 0 )
+      throw new MojoFailureException(MessageFormat.format(Messages.get(Messages.CHILD_POM_FAILURES), failed, children.size(), parentCoordinate, report));
+
+    getLog().info(MessageFormat.format(Messages.get(Messages.VERIFIED_CHILD_POMS), children.size(), parentCoordinate));
+  }
+
+  /**
+   * Check one child POM's parent reference, returning a description of the failure or null.
+   */
+  protected static String checkChildPom(ArtifactCoordinate parentCoordinate, String childPath, SessionCache cache) {
+    try {
+      ArtifactCoordinate reference = cache.getParentPomCoordinate(childPath);
+      if( parentCoordinate.getGroupId().equals(reference.getGroupId())
+              && parentCoordinate.getArtifactId().equals(reference.getArtifactId())
+              && verifyVersion(parentCoordinate.getVersion(), reference.getVersion()) )
+        return null;
+      return MessageFormat.format(Messages.get(Messages.CHILD_POM_MISMATCH), childPath, reference);
+    }
+    catch (MojoExecutionException | RuntimeException e) {
+      return childPath + ": " + e.getMessage();
+    }
+  }
+
+  /**
+   * The child POMs named by <code>modules</code>, or else found under <code>rootDir</code>, excluding the parent POM itself.
+   */
+  protected static List<Path> findChildPoms(String rootDir, String modules, Path parentPom) throws IOException {
+
+    Path root = Paths.get(rootDir != null ? rootDir : ".");
+    List<Path> poms = new ArrayList<Path>();
+
+    if( modules != null ) {
+      for( String module : modules.split(",") ) {
+        if( module.trim().isEmpty() )
+          continue;
+        Path pom = root.resolve(module.trim());
+        poms.add(Files.isDirectory(pom) ? pom.resolve("pom.xml") : pom);
+      }
+    }
+    else {
+      Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+          if( ! dir.equals(root) && (name.equals("target") || name.startsWith(".")) )
+            return FileVisitResult.SKIP_SUBTREE;
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          if( attrs.isRegularFile() && file.getFileName().toString().equals("pom.xml") )
+            poms.add(file);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+      poms.sort(null);
+    }
+
+    List<Path> children = new ArrayList<Path>(poms.size());
+    for( Path pom : poms )
+      if( ! (Files.exists(pom) && Files.exists(parentPom) && Files.isSameFile(pom, parentPom)) )
+        children.add(pom);
+    return children;
+  }
+}  
\ No newline at end of file
@@ -14,13 +14,22 @@
  */    
 package com.ibm.cloud.project.util.plugin;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.osgi.framework.Version;
-import org.osgi.framework.VersionRange;
 
 /**
  * This is a Maven Mojo that can be used to verify that a version ID satisfies a semantic version
@@ -29,24 +38,137 @@ import org.osgi.framework.VersionRange;
  * <p><code>
  * % mvn -q com.ibm.cloud:project-util-plugin:check-version -Drange_spec="[0.3,0.4)" -Dversion="0.3.7"
  * </code></p>
+ * <p>Alternatively, <code>pairs_file</code> names a file, or "-" for stdin, of version and range pairs to check
+ * in one invocation, one pair per line separated by whitespace. Blank lines and lines starting with '#' are ignored.
+ * One result line is written per pair, to <code>results_file</code> or else stdout:
+ * <code>ok|fail|error&lt;TAB&gt;version&lt;TAB&gt;range</code>. The goal fails if any pair does not pass.</p>
+ * <p>Also:
+ * <ul>
+ * <li><b>metrics_file</b> A file to write a JSON summary of timings, bytes and cache hits to (optional)
+ * </ul>
  */
 @Mojo(name = "check-version", requiresProject = false)
 public class CheckVersionMojo extends AbstractMojo {
 
 
-  @Parameter(property = "range_spec", required = true )
+  @Parameter(property = "range_spec", required = false )
   private String range;
 
-  @Parameter(property = "version", required = true )
+  @Parameter(property = "version", required = false )
   private String version;
 
+  @Parameter(property = "pairs_file", required = false )
+  private String pairsFile;
+
+  @Parameter(property = "results_file", required = false )
+  private String resultsFile;
+
+  @Parameter(property = "metrics_file")
+  private String metricsFile;
+
   public void execute() throws MojoExecutionException, MojoFailureException {
+
+    ExecutionMetrics metrics = ExecutionMetrics.start("check-version");
+    try {
+      checkVersion();
+      metrics.succeeded();
+    }
+    finally {
+      metrics.finish(metricsFile, getLog());
+    }
+  }
+
+  private void checkVersion() throws MojoExecutionException, MojoFailureException {
     
+    if( pairsFile != null ) {
+      checkPairs();
+      return;
+    }
+    if( range == null || version == null )
+      throw new MojoExecutionException("Both range_spec and version, or else pairs_file, are required");
+
     getLog().info("Verifying version "+version+" for range spec "+range);
     
-    if( ! VersionRange.valueOf(range).includes(Version.valueOf(version)) )
+    if( ! VersionMatcher.includes(range, version) )
       throw new MojoFailureException("Invalid version: '" + version + "' for spec: '"+range+"'");
 
     return;
   }
-}
\ No newline at end of file
+
+  private void checkPairs() throws MojoExecutionException, MojoFailureException {
+
+    long[] counts;
+    try( Reader reader = "-".equals(pairsFile) 
+                ? new InputStreamReader(StandardStreams.in(), StandardCharsets.UTF_8) {
+                    @Override
+                    public void close() {
+                      // leave stdin open
+                    }
+                  }
+                : Files.newBufferedReader(Paths.get(pairsFile), StandardCharsets.UTF_8);
+         Writer writer = resultsFile != null 
+                ? Files.newBufferedWriter(Paths.get(resultsFile), StandardCharsets.UTF_8) 
+                : new BufferedWriter(new OutputStreamWriter(StandardStreams.out(), StandardCharsets.UTF_8)) {
+                    @Override
+                    public void close() throws IOException {
+                      // leave stdout open
+                      flush();
+                    }
+                  } ) {
+      counts = checkPairs(reader, writer);
+    }
+    catch (IOException e) {
+      throw new MojoExecutionException("Check Version", e);
+    }
+
+    getLog().info("Checked "+counts[0]+" version/range pairs, "+counts[1]+" failed");
+    if( counts[1] > 0 )
+      throw new MojoFailureException("Invalid versions for "+counts[1]+" of "+counts[0]+" version/range pairs");
+  }
+
+  /**
+   * Check each pair read, writing one result line per pair. Returns the number of pairs checked and 
+   * the number that did not pass.
+   */
+  protected static long[] checkPairs(Reader reader, Writer writer) throws IOException {
+
+    long total = 0;
+    long failed = 0;
+
+    BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    String line;
+    while( (line = lines.readLine()) != null ) {
+      line = line.trim();
+      if( line.isEmpty() || line.startsWith("#") )
+        continue;
+
+      // The range may itself contain whitespace, e.g. "[0.3, 0.4)"
+      int split = 0;
+      while( split < line.length() && ! Character.isWhitespace(line.charAt(split)) )
+        ++split;
+      String pairVersion = line.substring(0, split);
+      String pairRange = line.substring(split).trim();
+
+      String result;
+      try {
+        result = VersionMatcher.includes(pairRange, pairVersion) ? "ok" : "fail";
+      }
+      catch (IllegalArgumentException e) {
+        result = "error";
+      }
+      if( ! "ok".equals(result) )
+        ++failed;
+      ++total;
+
+      writer.write(result);
+      writer.write('\t');
+      writer.write(pairVersion);
+      writer.write('\t');
+      writer.write(pairRange);
+      writer.write('\n');
+    }
+    writer.flush();
+
+    return new long[] { total, failed };
+  }
+}
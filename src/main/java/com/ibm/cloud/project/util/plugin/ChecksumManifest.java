@@ -0,0 +1,201 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static com.ibm.cloud.project.util.plugin.MojoUtil.getDigest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A checksum manifest lists the files of a directory tree, sorted by path, one entry per line:
+ * <p><code>path&lt;TAB&gt;size&lt;TAB&gt;digest</code></p>
+ * Paths are relative to the root of the tree and always use '/' as the separator.
+ */
+public class ChecksumManifest {
+
+  protected static class Entry {
+
+    final String path;
+    final long size;
+    final String digest;
+
+    Entry(String path, long size, String digest) {
+      this.path = path;
+      this.size = size;
+      this.digest = digest;
+    }
+
+    static Entry parse(String line) throws IOException {
+      String[] fields = line.split("\t");
+      if( fields.length != 3 )
+        throw new IOException("Invalid checksum manifest entry: "+line);
+      try {
+        return new Entry(fields[0], Long.parseLong(fields[1]), fields[2]);
+      }
+      catch (NumberFormatException e) {
+        throw new IOException("Invalid checksum manifest entry: "+line, e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return path + '\t' + size + '\t' + digest;
+    }
+  }
+
+  protected static List<Path> listFiles(Path root, String glob) throws IOException {
+
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+
+    try( Stream<Path> stream = Files.walk(root) ) {
+      return stream
+              .filter(Files::isRegularFile)
+              .filter(p -> matcher.matches(root.relativize(p)))
+              .sorted((a, b) -> relativePath(root, a).compareTo(relativePath(root, b)))
+              .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Hash <code>files</code>, as listed by {@link #listFiles(Path, String)}, on a fork-join pool of
+   * <code>threads</code> workers. Digests are formatted as by {@link DigestAlgorithm#format}. 
+   * The digest cache may be null. Entries are written in path order as soon as each digest
+   * and all of its predecessors are complete.
+   */
+  protected static void generate(Path root, List<Path> files, DigestProvider provider, DigestCache cache, int threads, Writer writer) throws IOException, NoSuchAlgorithmException {
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      List<ForkJoinTask<String>> tasks = new ArrayList<ForkJoinTask<String>>(files.size());
+      for( Path file : files )
+        tasks.add(pool.submit(() -> DigestAlgorithm.format(provider, getDigest(file.toFile(), provider, cache))));
+
+      for( int k=0; k<files.size(); ++k ) {
+        Path file = files.get(k);
+        Entry entry = new Entry(relativePath(root, file), Files.size(file), tasks.get(k).get());
+        writer.write(entry.toString());
+        writer.write('\n');
+      }
+      writer.flush();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted generating checksum manifest for: "+root, e);
+    }
+    catch (ExecutionException e) {
+      throw rethrow(e, "Failed generating checksum manifest for: "+root);
+    }
+    finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Verify every entry against the files under <code>root</code> on a fork-join pool of 
+   * <code>threads</code> workers, detecting each entry's algorithm from its digest. Returns the
+   * entries whose files are missing or do not match, in manifest order.
+   */
+  protected static List<Entry> verify(Path root, List<Entry> entries, DigestCache cache, int threads) throws IOException, NoSuchAlgorithmException {
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      List<ForkJoinTask<Boolean>> tasks = new ArrayList<ForkJoinTask<Boolean>>(entries.size());
+      for( Entry entry : entries ) {
+        Path file = resolve(root, entry);
+        tasks.add(pool.submit(() -> verify(file, entry, cache)));
+      }
+
+      List<Entry> mismatches = new ArrayList<Entry>();
+      for( int k=0; k<entries.size(); ++k )
+        if( ! tasks.get(k).get() )
+          mismatches.add(entries.get(k));
+      return mismatches;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted verifying checksum manifest for: "+root, e);
+    }
+    catch (ExecutionException e) {
+      throw rethrow(e, "Failed verifying checksum manifest for: "+root);
+    }
+    finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * The file for an entry. Entries may not name files outside of <code>root</code>.
+   */
+  protected static Path resolve(Path root, Entry entry) throws IOException {
+    Path base = root.toAbsolutePath().normalize();
+    Path file = base.resolve(entry.path).normalize();
+    if( ! file.startsWith(base) || file.equals(base) )
+      throw new IOException("Checksum manifest entry outside of "+root+": "+entry.path);
+    return file;
+  }
+
+  private static boolean verify(Path file, Entry entry, DigestCache cache) throws IOException, NoSuchAlgorithmException {
+
+    if( ! Files.isRegularFile(file) || Files.size(file) != entry.size )
+      return false;
+
+    DigestProvider provider = DigestAlgorithm.detect(entry.digest);
+    return getDigest(file.toFile(), provider, cache).equalsIgnoreCase(DigestAlgorithm.digestValue(entry.digest));
+  }
+
+  protected static List<Entry> read(Reader reader) throws IOException {
+
+    List<Entry> entries = new ArrayList<Entry>();
+
+    BufferedReader bufferedReader = new BufferedReader(reader);
+    String line;
+    while( (line = bufferedReader.readLine()) != null ) {
+      if( line.trim().isEmpty() )
+        continue;
+      entries.add(Entry.parse(line));
+    }
+
+    return Collections.unmodifiableList(entries);
+  }
+
+  private static IOException rethrow(ExecutionException e, String message) throws IOException, NoSuchAlgorithmException {
+    Throwable cause = e.getCause();
+    if( cause instanceof IOException )
+      throw (IOException) cause;
+    if( cause instanceof NoSuchAlgorithmException )
+      throw (NoSuchAlgorithmException) cause;
+    return new IOException(message, cause);
+  }
+
+  private static String relativePath(Path root, Path file) {
+    return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+  }
+}
@@ -0,0 +1,333 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A resident server running the goals of this plugin for {@link DaemonClient}, over the 
+ * {@link DaemonProtocol}. Requests run one at a time on a single worker thread, since the goals share
+ * process-wide state such as the HTTP transport and cache; the JIT state, caches and pooled 
+ * connections of the JVM are kept warm between requests. The goal's standard input and output are 
+ * the client's, see {@link StandardStreams}. Requests that would hold the worker 
+ * indefinitely, such as <code>verify-file</code> with <code>watch</code>, are rejected, and the daemon
+ * is never idle while requests are pending.
+ */
+public class Daemon {
+
+  private final Path dir;
+  private final Log log;
+  private final long idleTimeoutMs;
+  private final MojoDescriptors descriptors;
+
+  private final ExecutorService worker = Executors.newSingleThreadExecutor();
+  private final ScheduledExecutorService idleTimer = Executors.newSingleThreadScheduledExecutor();
+  private volatile long lastUsed = System.currentTimeMillis();
+  private final AtomicInteger pending = new AtomicInteger();
+
+  private ServerSocketChannel server;
+  private String token;
+
+  protected Daemon(Path dir, long idleTimeoutMs, Log log) throws IOException {
+    this.dir = dir;
+    this.idleTimeoutMs = idleTimeoutMs;
+    this.log = log;
+    this.descriptors = MojoDescriptors.load(Daemon.class.getClassLoader());
+  }
+
+  /**
+   * Listen on a Unix domain socket if <code>unix</code> and supported by this JDK, otherwise on a
+   * loopback TCP port.
+   */
+  protected void start(boolean unix) throws IOException {
+
+    Files.createDirectories(dir);
+    byte[] secret = new byte[16];
+    new SecureRandom().nextBytes(secret);
+    token = DatatypeConverter.printHexBinary(secret);
+    writePrivate(dir.resolve(DaemonProtocol.TOKEN), token);
+
+    Path socket = dir.resolve(DaemonProtocol.SOCKET);
+    Files.deleteIfExists(socket);
+    Files.deleteIfExists(dir.resolve(DaemonProtocol.PORT));
+
+    if( unix && DaemonProtocol.isUnixSupported() ) {
+      server = DaemonProtocol.openUnixServer(socket);
+      log.info("Daemon listening on "+socket);
+    }
+    else {
+      server = ServerSocketChannel.open();
+      server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+      writePrivate(dir.resolve(DaemonProtocol.PORT), Integer.toString(port));
+      log.info("Daemon listening on loopback port "+port);
+    }
+
+    if( idleTimeoutMs > 0 )
+      idleTimer.scheduleWithFixedDelay(() -> {
+        if( pending.get() == 0 && System.currentTimeMillis() - lastUsed > idleTimeoutMs ) {
+          log.info("Daemon idle, stopping");
+          stop();
+        }
+      }, 1, 1, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Serve requests until stopped.
+   */
+  protected void serve() throws IOException {
+    try {
+      while( true ) {
+        SocketChannel channel;
+        try {
+          channel = server.accept();
+        }
+        catch (ClosedChannelException e) {
+          break;
+        }
+        pending.incrementAndGet();
+        lastUsed = System.currentTimeMillis();
+        worker.submit(() -> handle(channel));
+      }
+    }
+    finally {
+      stop();
+      worker.shutdown();
+      idleTimer.shutdownNow();
+      Files.deleteIfExists(dir.resolve(DaemonProtocol.SOCKET));
+      Files.deleteIfExists(dir.resolve(DaemonProtocol.PORT));
+      Files.deleteIfExists(dir.resolve(DaemonProtocol.TOKEN));
+    }
+  }
+
+  protected void stop() {
+    try {
+      if( server != null )
+        server.close();
+    }
+    catch (IOException e) {
+      log.warn("Daemon socket not closed: "+e);
+    }
+  }
+
+  private void handle(SocketChannel channel) {
+    lastUsed = System.currentTimeMillis();
+    try( SocketChannel c = channel;
+         BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(c), StandardCharsets.UTF_8));
+         Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(c), StandardCharsets.UTF_8)) ) {
+
+      RemoteLog remoteLog = new RemoteLog(out);
+      int code;
+      String greeting = in.readLine();
+      String prefix = DaemonProtocol.GREETING + '\t' + token + '\t';
+      if( greeting == null || ! greeting.startsWith(prefix) ) {
+        remoteLog.error("Not authorized");
+        code = DaemonProtocol.FAILURE;
+      }
+      else {
+        Path workingDir = Paths.get(DaemonProtocol.unescape(greeting.substring(prefix.length())));
+        String request = in.readLine();
+        code = request == null ? DaemonProtocol.FAILURE : run(request, workingDir, in, remoteLog);
+      }
+      out.write(DaemonProtocol.EXIT + '\t' + code + '\n');
+      out.flush();
+    }
+    catch (IOException e) {
+      log.warn("Daemon request failed: "+e);
+    }
+    finally {
+      lastUsed = System.currentTimeMillis();
+      pending.decrementAndGet();
+    }
+  }
+
+  /**
+   * Run a request for a client, resolving its relative paths against the client's <code>workingDir</code>.
+   * The goal reads the client's standard input from <code>in</code>, and its output is sent with its log.
+   */
+  private int run(String request, Path workingDir, BufferedReader in, RemoteLog requestLog) throws IOException {
+
+    String[] fields = request.split("\t");
+    String[] arguments = new String[fields.length];
+    for( int k=0; k<fields.length; ++k )
+      arguments[k] = k == 0 ? DaemonProtocol.unescape(fields[k]) : DaemonProtocol.resolve(DaemonProtocol.unescape(fields[k]), workingDir);
+    String goal = arguments[0];
+
+    if( DaemonProtocol.PING.equals(goal) )
+      return DaemonProtocol.SUCCESS;
+    if( DaemonProtocol.STOP.equals(goal) ) {
+      stop();
+      return DaemonProtocol.SUCCESS;
+    }
+
+    for( int k=1; k<arguments.length; ++k ) {
+      if( arguments[k].startsWith("watch=") && Boolean.parseBoolean(arguments[k].substring("watch=".length()).trim()) ) {
+        requestLog.error("watch is not supported by the daemon, run the goal with mvn or the standalone launcher");
+        return DaemonProtocol.FAILURE;
+      }
+    }
+
+    InputStream stdin = new ByteArrayInputStream(DaemonProtocol.usesStdin(arguments) ? readInput(in) : new byte[0]);
+    PrintStream stdout = new PrintStream(new RemoteOutput(requestLog), true, "UTF-8");
+    StandardStreams.redirect(stdin, stdout);
+    try {
+      return descriptors.execute(goal, arguments, 1, requestLog) ? DaemonProtocol.SUCCESS : DaemonProtocol.FAILURE;
+    }
+    finally {
+      StandardStreams.reset();
+      stdout.close();
+    }
+  }
+
+  /**
+   * Read the standard input uploaded by a client. It is read in full before the goal runs, as the 
+   * client only reads the goal's output once it has uploaded its input.
+   */
+  private static byte[] readInput(BufferedReader in) throws IOException {
+
+    ByteArrayOutputStream input = new ByteArrayOutputStream();
+    String line;
+    while( (line = in.readLine()) != null && line.startsWith(DaemonProtocol.IN + '\t') ) {
+      byte[] bytes = DaemonProtocol.unescape(line.substring(DaemonProtocol.IN.length() + 1)).getBytes(StandardCharsets.UTF_8);
+      input.write(bytes, 0, bytes.length);
+    }
+    return input.toByteArray();
+  }
+
+  private static void writePrivate(Path file, String content) throws IOException {
+    Files.deleteIfExists(file);
+    if( FileSystems.getDefault().supportedFileAttributeViews().contains("posix") )
+      Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Forwards a request's log to its client.
+   */
+  private static class RemoteLog implements Log {
+
+    private final Writer out;
+
+    RemoteLog(Writer out) {
+      this.out = out;
+    }
+
+    private void write(String level, CharSequence content, Throwable error) {
+      StringBuilder message = new StringBuilder();
+      if( content != null )
+        message.append(content);
+      if( error != null ) {
+        if( message.length() > 0 )
+          message.append(": ");
+        message.append(error);
+      }
+      frame(level, message.toString());
+    }
+
+    synchronized void frame(String kind, String text) {
+      try {
+        out.write(kind + '\t' + DaemonProtocol.escape(text) + '\n');
+        out.flush();
+      }
+      catch (IOException e) {
+        // client gone, the request still runs to completion
+      }
+    }
+
+    public boolean isDebugEnabled() { return false; }
+    public void debug(CharSequence content) { }
+    public void debug(CharSequence content, Throwable error) { }
+    public void debug(Throwable error) { }
+
+    public boolean isInfoEnabled() { return true; }
+    public void info(CharSequence content) { write("INFO", content, null); }
+    public void info(CharSequence content, Throwable error) { write("INFO", content, error); }
+    public void info(Throwable error) { write("INFO", null, error); }
+
+    public boolean isWarnEnabled() { return true; }
+    public void warn(CharSequence content) { write("WARNING", content, null); }
+    public void warn(CharSequence content, Throwable error) { write("WARNING", content, error); }
+    public void warn(Throwable error) { write("WARNING", null, error); }
+
+    public boolean isErrorEnabled() { return true; }
+    public void error(CharSequence content) { write("ERROR", content, null); }
+    public void error(CharSequence content, Throwable error) { write("ERROR", content, error); }
+    public void error(Throwable error) { write("ERROR", null, error); }
+  }
+
+  /**
+   * The standard output of a request, sent to its client a line at a time.
+   */
+  private static class RemoteOutput extends OutputStream {
+
+    private final RemoteLog log;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    RemoteOutput(RemoteLog log) {
+      this.log = log;
+    }
+
+    @Override
+    public void write(int b) {
+      line.write(b);
+      if( b == '\n' )
+        send();
+    }
+
+    @Override
+    public void close() {
+      if( line.size() > 0 )
+        send();
+    }
+
+    private void send() {
+      // Whole lines, so that multi-byte characters are never split
+      log.frame(DaemonProtocol.OUT, new String(line.toByteArray(), StandardCharsets.UTF_8));
+      line.reset();
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The thin client of {@link Daemon}, depending only on the JDK:
+ * <p><code>java -cp project-util-plugin.jar com.ibm.cloud.project.util.plugin.DaemonClient goal [property=value ...]</code></p>
+ * <p>The goal's output is printed to stdout, and its log to stderr as Maven would print it, so that
+ * stdout matches that of <code>mvn -q</code>. The client's stdin is uploaded to goals reading "-". The
+ * exit code is that of the goal, 0 for success and 1 for failure, as for <code>mvn</code>. The daemon directory defaults to 
+ * <code>~/.m2/project-util/daemon</code>, or the <code>PROJECT_UTIL_DAEMON_DIR</code> environment variable.</p>
+ */
+public class DaemonClient {
+
+  public static void main(String[] args) {
+    String dir = System.getenv("PROJECT_UTIL_DAEMON_DIR");
+    System.exit(run(Paths.get(dir != null ? dir : DaemonProtocol.DEFAULT_DIR), Paths.get("").toAbsolutePath(), args, 
+            System.in, System.out, System.err));
+  }
+
+  protected static int run(Path dir, String[] args, PrintStream console) {
+    return run(dir, Paths.get("").toAbsolutePath(), args, console);
+  }
+
+  protected static int run(Path dir, Path workingDir, String[] args, PrintStream console) {
+    return run(dir, workingDir, args, System.in, console, console);
+  }
+
+  /**
+   * Send a request, with relative paths resolved by the daemon against <code>workingDir</code>, printing
+   * the goal's output to <code>stdout</code> and its log to <code>console</code>.
+   */
+  protected static int run(Path dir, Path workingDir, String[] args, InputStream stdin, PrintStream stdout, PrintStream console) {
+
+    if( args.length == 0 ) {
+      console.println("[ERROR] Usage: DaemonClient goal [property=value ...]");
+      return DaemonProtocol.FAILURE;
+    }
+
+    StringBuilder request = new StringBuilder(DaemonProtocol.escape(args[0]));
+    for( int k=1; k<args.length; ++k )
+      request.append('\t').append(DaemonProtocol.escape(args[k]));
+
+    try( SocketChannel channel = connect(dir);
+         BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+         Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8)) ) {
+
+      String token = new String(Files.readAllBytes(dir.resolve(DaemonProtocol.TOKEN)), StandardCharsets.UTF_8).trim();
+      out.write(DaemonProtocol.GREETING + '\t' + token + '\t' + DaemonProtocol.escape(workingDir.toAbsolutePath().toString()) + '\n');
+      out.write(request.append('\n').toString());
+      out.flush();
+      if( DaemonProtocol.usesStdin(args) )
+        upload(stdin, out);
+
+      String line;
+      while( (line = in.readLine()) != null ) {
+        int tab = line.indexOf('\t');
+        if( tab < 0 )
+          continue;
+        String kind = line.substring(0, tab);
+        String value = line.substring(tab + 1);
+        if( kind.equals(DaemonProtocol.EXIT) ) {
+          stdout.flush();
+          return Integer.parseInt(value.trim());
+        }
+        if( kind.equals(DaemonProtocol.OUT) )
+          stdout.print(DaemonProtocol.unescape(value));
+        else
+          console.println("[" + kind + "] " + DaemonProtocol.unescape(value));
+      }
+      console.println("[ERROR] Daemon closed the connection");
+    }
+    catch (IOException | NumberFormatException e) {
+      console.println("[ERROR] Daemon unavailable in " + dir + ": " + e);
+    }
+    return DaemonProtocol.FAILURE;
+  }
+
+  /**
+   * Upload stdin, in full, since the daemon reads it before running the goal.
+   */
+  private static void upload(InputStream stdin, Writer out) throws IOException {
+
+    Reader reader = new InputStreamReader(stdin, StandardCharsets.UTF_8);
+    char[] buffer = new char[8192];
+    int n;
+    while( (n = reader.read(buffer)) >= 0 )
+      out.write(DaemonProtocol.IN + '\t' + DaemonProtocol.escape(new String(buffer, 0, n)) + '\n');
+    out.write(DaemonProtocol.EOF + '\n');
+    out.flush();
+  }
+
+  private static SocketChannel connect(Path dir) throws IOException {
+
+    Path socket = dir.resolve(DaemonProtocol.SOCKET);
+    if( Files.exists(socket) && DaemonProtocol.isUnixSupported() )
+      return DaemonProtocol.connectUnix(socket);
+
+    int port = Integer.parseInt(new String(Files.readAllBytes(dir.resolve(DaemonProtocol.PORT)), StandardCharsets.UTF_8).trim());
+    return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+  }
+}
@@ -0,0 +1,64 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * <p>Run a resident daemon serving the goals of this plugin to {@link DaemonClient}, without paying
+ * Maven and JVM startup for each check. Goals that need a Maven session or project are not served.
+ * The goal runs until the daemon is stopped, or has been idle for <code>idle_timeout</code>.
+ * <p>Parameters:
+ * <ul>
+ * <li><b>daemon_dir</b> The directory for the daemon's socket or port, and token files (optional, default=~/.m2/project-util/daemon)
+ * <li><b>transport</b> <code>unix</code> for a Unix domain socket where the JDK supports it (16+), or <code>tcp</code> for a loopback port (optional, default=unix)
+ * <li><b>idle_timeout</b> Stop after this many minutes without a request, or never if 0 (optional, default=60)
+ * </ul>
+ * <p>Example:
+ * <br><code>mvn -q com.ibm.cloud:project-util-plugin:daemon &amp;</code>
+ * <br><code>java -cp project-util-plugin.jar com.ibm.cloud.project.util.plugin.DaemonClient check-version range_spec="[0.3,0.4)" version=0.3.7</code></p>
+ */
+@Mojo(name = "daemon", requiresProject = false)
+public class DaemonMojo extends AbstractMojo {
+
+  @Parameter(property = "daemon_dir")
+  private String daemonDir;
+
+  @Parameter(property = "transport", defaultValue = "unix")
+  private String transport;
+
+  @Parameter(property = "idle_timeout", defaultValue = "60")
+  private int idleTimeout;
+
+
+  public void execute() throws MojoExecutionException, MojoFailureException {
+
+    try {
+      Daemon daemon = new Daemon(Paths.get(daemonDir != null ? daemonDir : DaemonProtocol.DEFAULT_DIR), idleTimeout * 60000L, getLog());
+      daemon.start(! "tcp".equals(transport));
+      daemon.serve();
+    }
+    catch (IOException e) {
+      throw new MojoExecutionException("Daemon", e);
+    }
+  }
+}
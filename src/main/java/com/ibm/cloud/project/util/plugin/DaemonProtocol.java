@@ -0,0 +1,200 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The line protocol between the project-util daemon and its client. It depends only on the JDK, 
+ * so that the client can run from the plugin jar without Maven.
+ * <p>The client sends two lines, a greeting with the daemon's token and the client's absolute working 
+ * directory, and the request, a goal followed by its <code>property=value</code> parameters:</p>
+ * <p><code>project-util-daemon/2&lt;TAB&gt;token&lt;TAB&gt;directory<br>goal&lt;TAB&gt;property=value&lt;TAB&gt;...</code></p>
+ * <p>Relative paths in the request are resolved against the client's working directory: the values of 
+ * properties named <code>*_path</code>, <code>*_dir</code> or <code>*_file</code>, and of properties named 
+ * <code>*_url</code> that are plain paths rather than URLs.</p>
+ * <p>If a parameter is "-", the goal's standard input, the client then uploads all of its standard input 
+ * as <code>IN&lt;TAB&gt;text</code> lines, ending with an <code>EOF</code> line, before the goal runs.</p>
+ * <p>The daemon answers with log lines, the goal's standard output as <code>OUT&lt;TAB&gt;text</code> 
+ * lines, and a final exit code, 0 for success and 1 for failure:</p>
+ * <p><code>INFO&lt;TAB&gt;message<br>OUT&lt;TAB&gt;text<br>...<br>EXIT&lt;TAB&gt;code</code></p>
+ * <p>Tabs, line breaks and backslashes in fields are escaped with a backslash.</p>
+ * <p>The daemon directory holds <code>daemon.token</code>, readable only by its owner, and either 
+ * <code>daemon.sock</code>, a Unix domain socket (JDK 16+), or <code>daemon.port</code>, the port of
+ * a loopback TCP socket.</p>
+ */
+public class DaemonProtocol {
+
+  static final String DEFAULT_DIR = System.getProperty("user.home") + "/.m2/project-util/daemon";
+  static final String SOCKET = "daemon.sock";
+  static final String PORT = "daemon.port";
+  static final String TOKEN = "daemon.token";
+
+  static final String GREETING = "project-util-daemon/3";
+  static final String EXIT = "EXIT";
+  static final String OUT = "OUT";
+  static final String IN = "IN";
+  static final String EOF = "EOF";
+  static final String PING = "ping";
+  static final String STOP = "stop";
+
+  static final int SUCCESS = 0;
+  static final int FAILURE = 1;
+
+  /**
+   * Whether a request reads the client's standard input, i.e. a parameter value is "-".
+   */
+  protected static boolean usesStdin(String[] arguments) {
+    for( int k=1; k<arguments.length; ++k )
+      if( arguments[k].endsWith("=-") )
+        return true;
+    return false;
+  }
+
+  /**
+   * Resolve a relative path-valued parameter, <code>property=value</code>, against <code>directory</code>.
+   */
+  protected static String resolve(String argument, Path directory) {
+
+    int eq = argument.indexOf('=');
+    if( eq <= 0 )
+      return argument;
+    String property = argument.substring(0, eq);
+    String value = argument.substring(eq + 1);
+
+    if( property.endsWith("_url") ) {
+      try {
+        new URL(value);
+        return argument;
+      }
+      catch (MalformedURLException e) {
+        // a plain path
+      }
+    }
+    else if( ! (property.endsWith("_path") || property.endsWith("_dir") || property.endsWith("_file")) ) {
+      return argument;
+    }
+
+    // "-" is the client's stdin
+    if( value.isEmpty() || value.equals("-") )
+      return argument;
+    try {
+      if( Paths.get(value).isAbsolute() )
+        return argument;
+      return property + "=" + directory.resolve(value);
+    }
+    catch (InvalidPathException e) {
+      return argument;
+    }
+  }
+
+  protected static String escape(String field) {
+    StringBuilder escaped = new StringBuilder(field.length());
+    for( int k=0; k<field.length(); ++k ) {
+      char c = field.charAt(k);
+      switch( c ) {
+        case '\\': escaped.append("\\\\"); break;
+        case '\t': escaped.append("\\t"); break;
+        case '\n': escaped.append("\\n"); break;
+        case '\r': escaped.append("\\r"); break;
+        default: escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  protected static String unescape(String field) {
+    StringBuilder unescaped = new StringBuilder(field.length());
+    for( int k=0; k<field.length(); ++k ) {
+      char c = field.charAt(k);
+      if( c != '\\' || k + 1 == field.length() ) {
+        unescaped.append(c);
+        continue;
+      }
+      c = field.charAt(++k);
+      unescaped.append(c == 't' ? '\t' : c == 'n' ? '\n' : c == 'r' ? '\r' : c);
+    }
+    return unescaped.toString();
+  }
+
+  /**
+   * Whether this JDK supports Unix domain socket channels, added in JDK 16.
+   */
+  protected static boolean isUnixSupported() {
+    try {
+      Class.forName("java.net.UnixDomainSocketAddress");
+      return true;
+    }
+    catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  protected static ServerSocketChannel openUnixServer(Path socket) throws IOException {
+    ServerSocketChannel server = (ServerSocketChannel) invoke(ServerSocketChannel.class, "open", new Class<?>[] { ProtocolFamily.class }, unixFamily());
+    server.bind(unixAddress(socket));
+    return server;
+  }
+
+  protected static SocketChannel connectUnix(Path socket) throws IOException {
+    SocketChannel channel = (SocketChannel) invoke(SocketChannel.class, "open", new Class<?>[] { ProtocolFamily.class }, unixFamily());
+    try {
+      channel.connect(unixAddress(socket));
+    }
+    catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return channel;
+  }
+
+  private static ProtocolFamily unixFamily() {
+    return StandardProtocolFamily.valueOf("UNIX");
+  }
+
+  private static SocketAddress unixAddress(Path socket) throws IOException {
+    try {
+      return (SocketAddress) invoke(Class.forName("java.net.UnixDomainSocketAddress"), "of", new Class<?>[] { Path.class }, socket);
+    }
+    catch (ClassNotFoundException e) {
+      throw new IOException("Unix domain sockets are not supported by this JDK", e);
+    }
+  }
+
+  private static Object invoke(Class<?> type, String method, Class<?>[] parameterTypes, Object... args) throws IOException {
+    try {
+      return type.getMethod(method, parameterTypes).invoke(null, args);
+    }
+    catch (InvocationTargetException e) {
+      if( e.getCause() instanceof IOException )
+        throw (IOException) e.getCause();
+      throw new IOException(e.getCause());
+    }
+    catch (ReflectiveOperationException | IllegalArgumentException e) {
+      throw new IOException("Unix domain sockets are not supported by this JDK", e);
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Repair of a local file from a reference copy, fetching only the blocks that differ.
+ * <p>The local file is matched against the reference's {@link BlockSignature}, and the replacement is
+ * assembled block by block in a temporary file: matched blocks are copied from the local file, and 
+ * each run of unmatched blocks is fetched with an HTTP <code>Range</code> request, or read at its 
+ * offset for a <code>file:</code> URL. The replacement is checked against the expected digest as it 
+ * is written, and moved into place atomically, as for {@link MojoUtil#replaceFile}.</p>
+ * <p>A repair is not attempted when most of the file would have to be fetched anyway, and is abandoned 
+ * if the server ignores ranges; {@link #repair} then returns null so that the caller can fall back to
+ * replacing the whole file.</p>
+ */
+public class DeltaRepair {
+
+  static final String SIGNATURE_SUFFIX = ".blocksig";
+
+  // Above this fraction of the reference, fetching it whole is simpler and no slower
+  static final double MAX_FETCH_FRACTION = 0.5;
+
+  protected static class Result {
+    long size;
+    long fetched;
+    int ranges;
+  }
+
+  /**
+   * Thrown when a server answers a range request with the whole content.
+   */
+  private static class RangeNotSupportedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    RangeNotSupportedException(URL url) {
+      super("Range requests not supported by: "+url);
+    }
+  }
+
+  /**
+   * The signature published beside a reference URL, e.g. <code>a.jar.blocksig</code> for <code>a.jar</code>.
+   */
+  protected static URL signatureURL(URL sourceURL) throws IOException {
+    return new URL(sourceURL.toString() + SIGNATURE_SUFFIX);
+  }
+
+  protected static BlockSignature fetchSignature(URL signatureURL) throws IOException {
+    return BlockSignature.read(new StringReader(MojoUtil.downloadText(signatureURL)));
+  }
+
+  /**
+   * Repair <code>file</code> from the reference at <code>sourceURL</code>, returning what was fetched, 
+   * or null if a delta repair is not worthwhile or not supported, leaving the file untouched.
+   */
+  protected static Result repair(URL sourceURL, BlockSignature signature, File file, DigestProvider provider, String expectedDigest) throws IOException, NoSuchAlgorithmException {
+
+    Path target = MojoUtil.replacementTarget(file);
+    long[] found;
+    if( Files.isRegularFile(target) ) {
+      found = signature.match(target.toFile());
+    }
+    else {
+      found = new long[signature.getBlockCount()];
+      Arrays.fill(found, -1);
+    }
+
+    // Runs of unmatched blocks, as {first, last} block indexes
+    List<int[]> runs = new ArrayList<int[]>();
+    long missing = 0;
+    boolean matched = false;
+    for( int k = 0; k < found.length; ++k ) {
+      if( found[k] >= 0 ) {
+        matched = true;
+        continue;
+      }
+      missing += signature.blockLength(k);
+      int[] run = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+      if( run != null && run[1] == k - 1 )
+        run[1] = k;
+      else
+        runs.add(new int[] { k, k });
+    }
+    if( missing > signature.size * MAX_FETCH_FRACTION )
+      return null;
+    if( ! MojoUtil.isFileURL(sourceURL) && ! HttpTransport.isHttp(sourceURL) )
+      return null;
+
+    Result result = new Result();
+    result.size = signature.size;
+    result.ranges = runs.size();
+
+    Path temp = MojoUtil.replacementTemp(target);
+    ExecutionMetrics metrics = ExecutionMetrics.current();
+    try( ExecutionMetrics.Timer timer = metrics.time(ExecutionMetrics.Phase.REPLACE) ) {
+      DigestProvider.Hasher digest = provider != null ? provider.newHasher() : null;
+      try( FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+           FileChannel local = matched ? FileChannel.open(target, StandardOpenOption.READ) : null ) {
+        int next = 0;
+        for( int k = 0; k < found.length; ) {
+          if( next < runs.size() && runs.get(next)[0] == k ) {
+            int[] run = runs.get(next++);
+            long start = signature.blockOffset(run[0]);
+            long end = signature.blockOffset(run[1]) + signature.blockLength(run[1]);
+            result.fetched += fetchRange(sourceURL, start, end, out, digest);
+            k = run[1] + 1;
+          }
+          else {
+            copy(local, found[k], signature.blockLength(k), out, digest);
+            ++k;
+          }
+        }
+      }
+      finally {
+        timer.addBytes(result.fetched);
+        metrics.addBytesFetched(result.fetched);
+        if( digest != null )
+          metrics.addBytesHashed(signature.size);
+      }
+
+      if( digest != null && expectedDigest != null ) {
+        String actualDigest = DatatypeConverter.printHexBinary(digest.digest());
+        if( ! actualDigest.equalsIgnoreCase(expectedDigest) )
+          throw new IOException("Repaired digest mismatch for: "+sourceURL+", expected: "+expectedDigest+", found: "+actualDigest);
+      }
+
+      MojoUtil.moveReplacement(temp, target);
+      return result;
+    }
+    catch (RangeNotSupportedException e) {
+      return null;
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static void copy(FileChannel local, long position, int length, FileChannel out, DigestProvider.Hasher digest) throws IOException {
+    ByteBuffer buff = ByteBuffer.allocate(length);
+    while( buff.hasRemaining() ) {
+      if( local.read(buff, position + buff.position()) < 0 )
+        throw new IOException("Local file truncated during repair");
+    }
+    buff.flip();
+    write(buff, out, digest);
+  }
+
+  private static void write(ByteBuffer buff, FileChannel out, DigestProvider.Hasher digest) throws IOException {
+    if( digest != null )
+      digest.update(buff.duplicate());
+    while( buff.hasRemaining() )
+      out.write(buff);
+  }
+
+  /**
+   * Append bytes <code>[start, end)</code> of the reference to <code>out</code>, returning the number fetched.
+   */
+  private static long fetchRange(URL sourceURL, long start, long end, FileChannel out, DigestProvider.Hasher digest) throws IOException {
+
+    if( MojoUtil.isFileURL(sourceURL) ) {
+      Path source;
+      try {
+        source = Paths.get(sourceURL.toURI());
+      }
+      catch (URISyntaxException | IllegalArgumentException e) {
+        throw new IOException("Not a local file: "+sourceURL, e);
+      }
+      try( FileChannel in = FileChannel.open(source, StandardOpenOption.READ) ) {
+        return transfer(Channels.newInputStream(in.position(start)), end - start, out, digest);
+      }
+    }
+
+    try( HttpTransport.Response response = HttpTransport.get().request(sourceURL, Collections.singletonMap("Range", "bytes=" + start + "-" + (end - 1))) ) {
+      int status = response.getStatus();
+      // Any other body, which may be the whole file, is abandoned with its connection rather than drained
+      if( status == 200 ) {
+        response.abort();
+        throw new RangeNotSupportedException(sourceURL);
+      }
+      String contentRange = response.getHeader("Content-Range");
+      if( status != 206 || contentRange == null || ! contentRange.startsWith("bytes " + start + "-" + (end - 1) + "/") ) {
+        response.abort();
+        throw new IOException("HTTP status "+status+" for range "+start+"-"+(end - 1)+" of: "+sourceURL);
+      }
+      try( InputStream in = response.getBody() ) {
+        return transfer(in, end - start, out, digest);
+      }
+    }
+  }
+
+  private static long transfer(InputStream in, long length, FileChannel out, DigestProvider.Hasher digest) throws IOException {
+    byte[] buff = new byte[65536];
+    long remaining = length;
+    while( remaining > 0 ) {
+      int n = in.read(buff, 0, (int) Math.min(buff.length, remaining));
+      if( n < 0 )
+        throw new IOException("Range truncated, "+remaining+" bytes short");
+      write(ByteBuffer.wrap(buff, 0, n), out, digest);
+      remaining -= n;
+    }
+    return length;
+  }
+}
@@ -0,0 +1,217 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.zip.Checksum;
+
+/**
+ * The built-in digest providers. MD5 and the SHA family are suitable for integrity checks; 
+ * XXH64 and CRC32C are much faster, but only suitable for detecting accidental change.
+ * <p>Checksums are written as <code>name:HEX</code>, except MD5 which is written as bare hex
+ * so that existing checksum files keep working. When a checksum has no prefix, the algorithm 
+ * is detected from the digest length.</p>
+ */
+public enum DigestAlgorithm implements DigestProvider {
+
+  MD5("md5", 32) {
+    @Override
+    public Hasher newHasher() throws NoSuchAlgorithmException {
+      return new MessageDigestHasher(MessageDigest.getInstance("MD5"));
+    }
+  },
+  SHA1("sha1", 40) {
+    @Override
+    public Hasher newHasher() throws NoSuchAlgorithmException {
+      return new MessageDigestHasher(MessageDigest.getInstance("SHA-1"));
+    }
+  },
+  SHA256("sha256", 64) {
+    @Override
+    public Hasher newHasher() throws NoSuchAlgorithmException {
+      return new MessageDigestHasher(MessageDigest.getInstance("SHA-256"));
+    }
+  },
+  SHA512("sha512", 128) {
+    @Override
+    public Hasher newHasher() throws NoSuchAlgorithmException {
+      return new MessageDigestHasher(MessageDigest.getInstance("SHA-512"));
+    }
+  },
+  XXH64("xxh64", 16) {
+    @Override
+    public Hasher newHasher() {
+      return new XXHash64();
+    }
+  },
+  CRC32C("crc32c", 8) {
+    @Override
+    public Hasher newHasher() {
+      return new ChecksumHasher(newCRC32C());
+    }
+  };
+
+  private final String name;
+  private final int hexLength;
+
+  private DigestAlgorithm(String name, int hexLength) {
+    this.name = name;
+    this.hexLength = hexLength;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Look up an algorithm by name, ignoring case and '-' or '_' separators (e.g. "SHA-256"). A 
+   * <code>tree-</code> prefix selects the {@link TreeDigest} of the algorithm, e.g. "tree-sha256".
+   */
+  public static DigestProvider forName(String name) throws NoSuchAlgorithmException {
+    String key = name.trim().toLowerCase(Locale.ROOT);
+    if( key.startsWith(TreeDigest.PREFIX) )
+      return TreeDigest.of(algorithmForName(name.trim().substring(TreeDigest.PREFIX.length())));
+    return algorithmForName(name);
+  }
+
+  private static DigestAlgorithm algorithmForName(String name) throws NoSuchAlgorithmException {
+    String key = name.trim().toLowerCase(Locale.ROOT).replace("-", "").replace("_", "");
+    for( DigestAlgorithm algorithm : values() )
+      if( algorithm.name.equals(key) )
+        return algorithm;
+    throw new NoSuchAlgorithmException("Unsupported digest algorithm: "+name);
+  }
+
+  /**
+   * Detect the algorithm of a checksum, from its <code>name:</code> prefix if present, 
+   * otherwise from the length of the hex digest.
+   */
+  public static DigestProvider detect(String cksum) throws NoSuchAlgorithmException {
+    String text = cksum.trim();
+    int colon = text.indexOf(':');
+    if( colon >= 0 )
+      return forName(text.substring(0, colon));
+    for( DigestAlgorithm algorithm : values() )
+      if( algorithm.hexLength == text.length() )
+        return algorithm;
+    throw new NoSuchAlgorithmException("Unrecognized checksum format: "+text);
+  }
+
+  /**
+   * The hex digest of a checksum, without any algorithm prefix.
+   */
+  public static String digestValue(String cksum) {
+    String text = cksum.trim();
+    return text.substring(text.indexOf(':') + 1);
+  }
+
+  /**
+   * Format a hex digest as a checksum for the given provider.
+   */
+  public static String format(DigestProvider provider, String hexDigest) {
+    if( provider == MD5 )
+      return hexDigest;
+    return provider.getName() + ":" + hexDigest;
+  }
+
+  private static final Constructor<?> JAVA_CRC32C = findJavaCRC32C();
+
+  private static Constructor<?> findJavaCRC32C() {
+    try {
+      return Class.forName("java.util.zip.CRC32C").getConstructor();
+    }
+    catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  // Prefer the intrinsified JDK 9+ implementation when it is available
+  private static Checksum newCRC32C() {
+    if( JAVA_CRC32C != null ) {
+      try {
+        return (Checksum) JAVA_CRC32C.newInstance();
+      }
+      catch (ReflectiveOperationException e) {
+        // fall through
+      }
+    }
+    return new CRC32CChecksum();
+  }
+
+  private static class MessageDigestHasher implements Hasher {
+
+    private final MessageDigest digest;
+
+    MessageDigestHasher(MessageDigest digest) {
+      this.digest = digest;
+    }
+
+    @Override
+    public void update(byte[] input, int offset, int len) {
+      digest.update(input, offset, len);
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+      digest.update(input);
+    }
+
+    @Override
+    public byte[] digest() {
+      return digest.digest();
+    }
+  }
+
+  private static class ChecksumHasher implements Hasher {
+
+    private final Checksum checksum;
+    private byte[] buff;
+
+    ChecksumHasher(Checksum checksum) {
+      this.checksum = checksum;
+    }
+
+    @Override
+    public void update(byte[] input, int offset, int len) {
+      checksum.update(input, offset, len);
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+      if( input.hasArray() ) {
+        checksum.update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        input.position(input.limit());
+        return;
+      }
+      if( buff == null )
+        buff = new byte[8192];
+      while( input.hasRemaining() ) {
+        int n = Math.min(buff.length, input.remaining());
+        input.get(buff, 0, n);
+        checksum.update(buff, 0, n);
+      }
+    }
+
+    @Override
+    public byte[] digest() {
+      return ByteBuffer.allocate(4).putInt((int) checksum.getValue()).array();
+    }
+  }
+}
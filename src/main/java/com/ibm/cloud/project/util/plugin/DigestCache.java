@@ -0,0 +1,264 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An on-disk cache of file digests, so that unchanged files need not be hashed again.
+ * <p>Entries are keyed by algorithm and absolute path, and are only valid while the file size, 
+ * last modified time and file key (e.g. device and inode) are unchanged. A digest is not cached 
+ * if the file was modified within {@link #RACY_WINDOW_MS} of hashing, since a later change in 
+ * the same timestamp tick would go unnoticed.</p>
+ * <p>The cache is bounded to a maximum number of entries, evicting the least recently used. It may
+ * be shared by concurrent Maven processes: the index is read and rewritten under a file lock, and
+ * replaced atomically.</p>
+ */
+public class DigestCache {
+
+  static final String DEFAULT_DIR = System.getProperty("user.home") + "/.m2/project-util/digest-cache";
+  static final int DEFAULT_MAX_ENTRIES = 10000;
+  static final long RACY_WINDOW_MS = 2000;
+
+  private static final String INDEX = "digests.idx";
+  private static final String LOCK = "digests.lock";
+
+  // FileLock is held per process, so threads of this process also synchronize here
+  private static final Object processLock = new Object();
+
+  private static class Entry {
+
+    final String algorithm;
+    final String path;
+    final long size;
+    final long modified;
+    final String fileKey;
+    final String digest;
+    volatile long lastUsed;
+
+    Entry(String algorithm, String path, long size, long modified, String fileKey, String digest, long lastUsed) {
+      this.algorithm = algorithm;
+      this.path = path;
+      this.size = size;
+      this.modified = modified;
+      this.fileKey = fileKey;
+      this.digest = digest;
+      this.lastUsed = lastUsed;
+    }
+
+    String key() {
+      return algorithm + '\t' + path;
+    }
+
+    boolean matches(long size, long modified, String fileKey) {
+      return this.size == size && this.modified == modified && this.fileKey.equals(fileKey);
+    }
+
+    static Entry parse(String line) {
+      String[] f = line.split("\t");
+      if( f.length != 7 )
+        return null;
+      try {
+        return new Entry(f[0], f[1], Long.parseLong(f[2]), Long.parseLong(f[3]), f[4], f[5], Long.parseLong(f[6]));
+      }
+      catch (NumberFormatException e) {
+        return null;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return algorithm + '\t' + path + '\t' + size + '\t' + modified + '\t' + fileKey + '\t' + digest + '\t' + lastUsed;
+    }
+  }
+
+  private final Path dir;
+  private final int maxEntries;
+  private final Map<String,Entry> entries = new ConcurrentHashMap<String,Entry>();
+  private final Map<String,Entry> updates = new ConcurrentHashMap<String,Entry>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private DigestCache(Path dir, int maxEntries) {
+    this.dir = dir;
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Open the cache in <code>dir</code>, or the default directory under <code>~/.m2</code> if null.
+   */
+  protected static DigestCache open(String dir, int maxEntries) throws IOException {
+
+    DigestCache cache = new DigestCache(Paths.get(dir != null ? dir : DEFAULT_DIR), maxEntries > 0 ? maxEntries : DEFAULT_MAX_ENTRIES);
+    Files.createDirectories(cache.dir);
+
+    synchronized( processLock ) {
+      try( FileChannel channel = FileChannel.open(cache.dir.resolve(LOCK), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+           FileLock lock = channel.lock() ) {
+        for( Entry entry : cache.readIndex() )
+          cache.entries.put(entry.key(), entry);
+      }
+    }
+
+    return cache;
+  }
+
+  /**
+   * The cached digest for a file, or null if there is none or the file has changed.
+   */
+  protected String lookup(File file, DigestProvider provider) throws IOException {
+
+    BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    Entry entry = entries.get(provider.getName() + '\t' + keyPath(file));
+
+    if( entry == null || ! entry.matches(attributes.size(), modified(attributes), fileKey(attributes)) ) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    entry.lastUsed = System.currentTimeMillis();
+    updates.put(entry.key(), entry);
+    hits.incrementAndGet();
+    return entry.digest;
+  }
+
+  /**
+   * Record the digest of a file. <code>before</code> are the file attributes read before hashing 
+   * started at <code>hashStart</code>; the digest is only stored if the file is unchanged since, 
+   * and its timestamp is not racy.
+   */
+  protected void store(File file, DigestProvider provider, BasicFileAttributes before, long hashStart, String digest) throws IOException {
+
+    String path = keyPath(file);
+    if( path.indexOf('\t') >= 0 || path.indexOf('\n') >= 0 || path.indexOf('\r') >= 0 )
+      return;
+
+    BasicFileAttributes after = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    if( after.size() != before.size() || modified(after) != modified(before) || ! fileKey(after).equals(fileKey(before)) )
+      return;
+    if( hashStart - before.lastModifiedTime().toMillis() < RACY_WINDOW_MS )
+      return;
+
+    Entry entry = new Entry(provider.getName(), path, after.size(), modified(after), fileKey(after), digest, System.currentTimeMillis());
+    entries.put(entry.key(), entry);
+    updates.put(entry.key(), entry);
+  }
+
+  /**
+   * Merge new and used entries into the index on disk, evicting the least recently used 
+   * entries beyond the size bound.
+   */
+  protected void save() throws IOException {
+
+    if( updates.isEmpty() )
+      return;
+
+    synchronized( processLock ) {
+      try( FileChannel channel = FileChannel.open(dir.resolve(LOCK), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+           FileLock lock = channel.lock() ) {
+
+        Map<String,Entry> merged = new HashMap<String,Entry>();
+        for( Entry entry : readIndex() )
+          merged.put(entry.key(), entry);
+        for( Entry entry : updates.values() ) {
+          Entry current = merged.get(entry.key());
+          if( current == null || current.lastUsed <= entry.lastUsed )
+            merged.put(entry.key(), entry);
+        }
+
+        List<Entry> list = new ArrayList<Entry>(merged.values());
+        if( list.size() > maxEntries ) {
+          Collections.sort(list, (a, b) -> Long.compare(b.lastUsed, a.lastUsed));
+          list = list.subList(0, maxEntries);
+        }
+
+        Path temp = Files.createTempFile(dir, INDEX, ".tmp");
+        try {
+          try( BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8) ) {
+            for( Entry entry : list ) {
+              writer.write(entry.toString());
+              writer.newLine();
+            }
+          }
+          Files.move(temp, dir.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+          Files.deleteIfExists(temp);
+        }
+        updates.clear();
+      }
+    }
+  }
+
+  protected long getHits() {
+    return hits.get();
+  }
+
+  protected long getMisses() {
+    return misses.get();
+  }
+
+  private List<Entry> readIndex() throws IOException {
+
+    List<Entry> list = new ArrayList<Entry>();
+    try( BufferedReader reader = Files.newBufferedReader(dir.resolve(INDEX), StandardCharsets.UTF_8) ) {
+      String line;
+      while( (line = reader.readLine()) != null ) {
+        Entry entry = Entry.parse(line);
+        if( entry != null )
+          list.add(entry);
+      }
+    }
+    catch (NoSuchFileException e) {
+      // empty cache
+    }
+    return list;
+  }
+
+  private static String keyPath(File file) {
+    return file.getAbsoluteFile().toPath().normalize().toString();
+  }
+
+  private static long modified(BasicFileAttributes attributes) {
+    return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+  }
+
+  private static String fileKey(BasicFileAttributes attributes) {
+    Object key = attributes.fileKey();
+    return key != null ? key.toString() : "-";
+  }
+}
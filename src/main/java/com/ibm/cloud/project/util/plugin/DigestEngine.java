@@ -0,0 +1,127 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Feeds file content to a {@link DigestProvider.Hasher}, choosing the read strategy by file size:
+ * <ul>
+ * <li>small files are read through a heap buffer, which has the least setup cost
+ * <li>medium files are read through a {@link FileChannel} into a large, per-thread direct buffer
+ * <li>large files are memory mapped region by region
+ * </ul>
+ * Every strategy produces the same digest.
+ */
+public class DigestEngine {
+
+  enum Strategy { HEAP, CHANNEL, MAPPED }
+
+  static final long CHANNEL_THRESHOLD = 64 * 1024;
+  static final long MAPPED_THRESHOLD = 64 * 1024 * 1024;
+  static final long MAP_REGION = 128 * 1024 * 1024;
+
+  private static final int HEAP_BUFFER = 8192;
+  private static final int DIRECT_BUFFER = 1024 * 1024;
+
+  private static final ThreadLocal<ByteBuffer> directBuffer = new ThreadLocal<ByteBuffer>() {
+    @Override
+    protected ByteBuffer initialValue() {
+      return ByteBuffer.allocateDirect(DIRECT_BUFFER);
+    }
+  };
+
+  protected static Strategy strategyFor(long size) {
+    if( size < CHANNEL_THRESHOLD )
+      return Strategy.HEAP;
+    if( size < MAPPED_THRESHOLD )
+      return Strategy.CHANNEL;
+    return Strategy.MAPPED;
+  }
+
+  protected static void update(DigestProvider.Hasher digest, File file) throws IOException {
+    update(digest, file, strategyFor(file.length()));
+  }
+
+  protected static void update(DigestProvider.Hasher digest, File file, Strategy strategy) throws IOException {
+    switch( strategy ) {
+      case HEAP:
+        updateHeap(digest, file);
+        break;
+      case CHANNEL:
+        updateChannel(digest, file);
+        break;
+      case MAPPED:
+        updateMapped(digest, file, MAP_REGION);
+        break;
+    }
+  }
+
+  private static void updateHeap(DigestProvider.Hasher digest, File file) throws IOException {
+    try( FileInputStream inputStream = new FileInputStream(file) ) {
+      byte[] buff = new byte[HEAP_BUFFER];
+      int bytesRead = 0; 
+      while ((bytesRead = inputStream.read(buff)) != -1)
+        digest.update(buff, 0, bytesRead);      
+    }
+  }
+
+  private static void updateChannel(DigestProvider.Hasher digest, File file) throws IOException {
+    ByteBuffer buff = directBuffer.get();
+    try( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) ) {
+      buff.clear();
+      while( channel.read(buff) != -1 ) {
+        buff.flip();
+        digest.update(buff);
+        buff.clear();
+      }
+    }
+  }
+
+  /**
+   * Feed <code>length</code> bytes from <code>position</code> of a channel, with positional reads so 
+   * that several threads can read the same channel.
+   */
+  static void updateRange(DigestProvider.Hasher digest, FileChannel channel, long position, long length) throws IOException {
+    ByteBuffer buff = directBuffer.get();
+    long end = position + length;
+    while( position < end ) {
+      buff.clear();
+      buff.limit((int) Math.min(buff.capacity(), end - position));
+      int n = channel.read(buff, position);
+      if( n < 0 )
+        throw new IOException("File truncated while hashing");
+      position += n;
+      buff.flip();
+      digest.update(buff);
+    }
+  }
+
+  static void updateMapped(DigestProvider.Hasher digest, File file, long regionSize) throws IOException {
+    try( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) ) {
+      long size = channel.size();
+      for( long position = 0; position < size; position += regionSize ) {
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+        digest.update(region);
+      }
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A source of incremental hash functions for file digests. The built-in providers are
+ * listed in {@link DigestAlgorithm}.
+ */
+public interface DigestProvider {
+
+  /**
+   * Incremental hash state for a single digest computation.
+   */
+  interface Hasher {
+
+    void update(byte[] input, int offset, int len);
+
+    void update(ByteBuffer input);
+
+    byte[] digest();
+  }
+
+  /**
+   * The name used for this algorithm in plugin parameters and checksum prefixes, e.g. "sha256".
+   */
+  String getName();
+
+  Hasher newHasher() throws NoSuchAlgorithmException;
+}
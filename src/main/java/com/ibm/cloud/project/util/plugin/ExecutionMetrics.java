@@ -0,0 +1,308 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Timings and counters for one goal execution: the time spent in each {@link Phase}, bytes hashed 
+ * and fetched, and cache hits and misses.
+ * <p>The shared helpers record into the metrics of the goal in progress, see {@link #current()}, 
+ * so no parameters need to be threaded through them. The goal in progress is that of the calling 
+ * thread, inherited by the threads it starts, so that goals running concurrently, e.g. in a 
+ * <code>mvn -T</code> build, each keep their own metrics. Phases may nest, e.g. a replace includes its 
+ * download, so phase times may add up to more than the goal's duration.</p>
+ * <p>Where the JDK supports Flight Recorder (JDK 11+, or 8u262+), each phase and goal is also a 
+ * custom JFR event, see {@link JfrEvents}, which costs nothing unless a recording is enabled. On 
+ * finish, the metrics are logged at debug level and, if requested, written as a JSON summary.</p>
+ */
+public class ExecutionMetrics {
+
+  protected enum Phase { PARSE, RESOLVE, INSTALL, HASH, DOWNLOAD, REPLACE;
+
+    String label() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private static final boolean JFR = isJfrAvailable();
+
+  // Recorded when no goal is in progress, e.g. from tests, and never reported
+  private static final ExecutionMetrics detached = new ExecutionMetrics(null);
+
+  private static final InheritableThreadLocal<ExecutionMetrics> current = new InheritableThreadLocal<ExecutionMetrics>() {
+    @Override
+    protected ExecutionMetrics initialValue() {
+      return detached;
+    }
+  };
+
+  private final String goal;
+  private final Instant start = Instant.now();
+  private final long startNanos = System.nanoTime();
+  private final Object goalEvent;
+
+  private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+  private final AtomicLongArray phaseCounts = new AtomicLongArray(Phase.values().length);
+  private final AtomicLong bytesHashed = new AtomicLong();
+  private final AtomicLong bytesFetched = new AtomicLong();
+  private final Map<String,long[]> caches = new TreeMap<String,long[]>();
+  private volatile boolean succeeded = false;
+  private volatile boolean finished = false;
+
+  private ExecutionMetrics(String goal) {
+    this.goal = goal;
+    this.goalEvent = JFR && goal != null ? JfrEvents.beginGoal(goal) : null;
+  }
+
+  /**
+   * Start the metrics of a goal, which become {@link #current()} for this thread, and the threads 
+   * it starts, until {@link #finish}.
+   */
+  protected static ExecutionMetrics start(String goal) {
+    ExecutionMetrics metrics = new ExecutionMetrics(goal);
+    current.set(metrics);
+    return metrics;
+  }
+
+  protected static ExecutionMetrics current() {
+    ExecutionMetrics metrics = current.get();
+    // Pooled threads may outlive the goal they inherited
+    return metrics.finished ? detached : metrics;
+  }
+
+  /**
+   * A running phase timer, to be closed when the phase ends.
+   */
+  protected final class Timer implements AutoCloseable {
+
+    private final Phase phase;
+    private final long startNanos = System.nanoTime();
+    private final Object event;
+    private long bytes;
+
+    private Timer(Phase phase) {
+      this.phase = phase;
+      this.event = JFR ? JfrEvents.beginPhase(goal, phase.label()) : null;
+    }
+
+    /**
+     * Count bytes processed in this phase, which are reported with its event.
+     */
+    protected void addBytes(long n) {
+      bytes += n;
+    }
+
+    @Override
+    public void close() {
+      phaseNanos.addAndGet(phase.ordinal(), System.nanoTime() - startNanos);
+      phaseCounts.incrementAndGet(phase.ordinal());
+      if( event != null )
+        JfrEvents.commitPhase(event, bytes);
+    }
+  }
+
+  protected Timer time(Phase phase) {
+    return new Timer(phase);
+  }
+
+  protected void addBytesHashed(long n) {
+    bytesHashed.addAndGet(n);
+  }
+
+  protected void addBytesFetched(long n) {
+    bytesFetched.addAndGet(n);
+  }
+
+  /**
+   * Record the hits and misses of a named cache, replacing any earlier totals for it.
+   */
+  protected void cache(String name, long hits, long misses) {
+    synchronized( caches ) {
+      caches.put(name, new long[] { hits, misses });
+    }
+  }
+
+  protected void succeeded() {
+    succeeded = true;
+  }
+
+  protected String getGoal() {
+    return goal;
+  }
+
+  protected long getPhaseNanos(Phase phase) {
+    return phaseNanos.get(phase.ordinal());
+  }
+
+  protected long getPhaseCount(Phase phase) {
+    return phaseCounts.get(phase.ordinal());
+  }
+
+  protected long getBytesHashed() {
+    return bytesHashed.get();
+  }
+
+  protected long getBytesFetched() {
+    return bytesFetched.get();
+  }
+
+  /**
+   * End the goal: log the metrics, commit its JFR event and write the JSON summary to 
+   * <code>summaryFile</code>, if not null. A summary that cannot be written is only a warning.
+   */
+  protected void finish(String summaryFile, Log log) {
+
+    long durationNanos = System.nanoTime() - startNanos;
+    finished = true;
+    if( current.get() == this )
+      current.remove();
+
+    long[] cacheTotals = new long[2];
+    synchronized( caches ) {
+      for( long[] counts : caches.values() ) {
+        cacheTotals[0] += counts[0];
+        cacheTotals[1] += counts[1];
+      }
+    }
+    if( goalEvent != null )
+      JfrEvents.commitGoal(goalEvent, succeeded, bytesHashed.get(), bytesFetched.get(), cacheTotals[0], cacheTotals[1]);
+
+    if( log.isDebugEnabled() ) {
+      StringBuilder phases = new StringBuilder();
+      for( Phase phase : Phase.values() )
+        if( getPhaseCount(phase) > 0 )
+          phases.append(String.format(" %s: %d in %.1f ms,", phase.label(), getPhaseCount(phase), getPhaseNanos(phase) / 1e6));
+      log.debug(String.format("Goal %s took %.1f ms,%s hashed: %d bytes (%.1f MiB/s), fetched: %d bytes (%.1f MiB/s)", 
+              goal, durationNanos / 1e6, phases, bytesHashed.get(), hashThroughput(), bytesFetched.get(), fetchThroughput()));
+    }
+
+    if( summaryFile == null )
+      return;
+
+    try {
+      writeSummary(Paths.get(summaryFile), durationNanos);
+    }
+    catch (IOException e) {
+      log.warn("Metrics summary not written: "+e);
+    }
+  }
+
+  /**
+   * MiB per second spent hashing, 0 if nothing was hashed.
+   */
+  protected double hashThroughput() {
+    return throughput(bytesHashed.get(), getPhaseNanos(Phase.HASH));
+  }
+
+  /**
+   * MiB per second spent downloading or replacing, 0 if nothing was fetched.
+   */
+  protected double fetchThroughput() {
+    return throughput(bytesFetched.get(), getPhaseNanos(Phase.DOWNLOAD) + getPhaseNanos(Phase.REPLACE));
+  }
+
+  private static double throughput(long bytes, long nanos) {
+    return nanos > 0 ? bytes / (1024.0 * 1024.0) / (nanos / 1e9) : 0;
+  }
+
+  private void writeSummary(Path path, long durationNanos) throws IOException {
+
+    Path dir = path.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    Path temp = Files.createTempFile(dir, "metrics", ".tmp");
+    try {
+      try( Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8) ) {
+        writer.write("{\n");
+        writer.write("  \"goal\": " + quote(goal) + ",\n");
+        writer.write("  \"success\": " + succeeded + ",\n");
+        writer.write("  \"start\": " + quote(start.toString()) + ",\n");
+        writer.write("  \"durationMs\": " + millis(durationNanos) + ",\n");
+        writer.write("  \"phases\": {");
+        String separator = "\n";
+        for( Phase phase : Phase.values() ) {
+          writer.write(separator + "    " + quote(phase.label()) + ": { \"count\": " + getPhaseCount(phase) + ", \"ms\": " + millis(getPhaseNanos(phase)) + " }");
+          separator = ",\n";
+        }
+        writer.write("\n  },\n");
+        writer.write("  \"bytes\": { \"hashed\": " + bytesHashed.get() + ", \"fetched\": " + bytesFetched.get() + " },\n");
+        writer.write(String.format(Locale.ROOT, "  \"throughputMiBps\": { \"hash\": %.3f, \"fetch\": %.3f },%n", hashThroughput(), fetchThroughput()));
+        writer.write("  \"caches\": {");
+        separator = "\n";
+        synchronized( caches ) {
+          for( Map.Entry<String,long[]> cache : caches.entrySet() ) {
+            writer.write(separator + "    " + quote(cache.getKey()) + ": { \"hits\": " + cache.getValue()[0] + ", \"misses\": " + cache.getValue()[1] + " }");
+            separator = ",\n";
+          }
+          writer.write(caches.isEmpty() ? "}\n" : "\n  }\n");
+        }
+        writer.write("}\n");
+      }
+      try {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+  }
+
+  private static String quote(String value) {
+    if( value == null )
+      return "null";
+    StringBuilder quoted = new StringBuilder("\"");
+    for( char c : value.toCharArray() ) {
+      if( c == '"' || c == '\\' )
+        quoted.append('\\').append(c);
+      else if( c < 0x20 )
+        quoted.append(String.format("\\u%04x", (int) c));
+      else
+        quoted.append(c);
+    }
+    return quoted.append('"').toString();
+  }
+
+  private static boolean isJfrAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, ExecutionMetrics.class.getClassLoader());
+      return true;
+    }
+    catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for changes to one file, through a {@link WatchService} on its directory, so that a policy 
+ * on the file can be enforced as soon as it is edited rather than at the next build.
+ * <p>Editors often save with several events, e.g. a truncate and a write, or a write to a temporary 
+ * file and a rename over the original. Events are therefore debounced: a change is reported once no 
+ * further event for the file has arrived for the debounce interval.</p>
+ * <p>Where the JDK has no native watch service, e.g. on macOS, it polls the directory, by default every 
+ * 10 seconds. The highest polling sensitivity is requested where the JDK supports it, which still 
+ * delays changes by up to {@link #POLLING_LATENCY_MS}.</p>
+ */
+public class FileWatcher implements Closeable {
+
+  static final long DEFAULT_DEBOUNCE_MS = 100;
+  static final long POLLING_LATENCY_MS = 2000;
+
+  private static final WatchEvent.Modifier[] SENSITIVITY = sensitivity();
+
+  private final Path file;
+  private final WatchService service;
+  private final long debounceMillis;
+
+  protected FileWatcher(Path file, long debounceMillis) throws IOException {
+    this.file = file.toAbsolutePath();
+    this.debounceMillis = debounceMillis > 0 ? debounceMillis : DEFAULT_DEBOUNCE_MS;
+    Path dir = this.file.getParent();
+    this.service = dir.getFileSystem().newWatchService();
+    try {
+      try {
+        dir.register(service, new WatchEvent.Kind<?>[] { ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE }, SENSITIVITY);
+      }
+      catch (UnsupportedOperationException e) {
+        dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+      }
+    }
+    catch (IOException e) {
+      service.close();
+      throw e;
+    }
+  }
+
+  /**
+   * The longest delay before a change is seen on the default file system: none with a native watch 
+   * service, otherwise up to the polling interval.
+   */
+  protected static long latencyMillis() {
+    try( WatchService service = FileSystems.getDefault().newWatchService() ) {
+      return service.getClass().getSimpleName().startsWith("Polling") ? POLLING_LATENCY_MS : 0;
+    }
+    catch (IOException e) {
+      return POLLING_LATENCY_MS;
+    }
+  }
+
+  /**
+   * The JDK's modifier for the highest polling sensitivity, if it has one.
+   */
+  private static WatchEvent.Modifier[] sensitivity() {
+    try {
+      Class<?> type = Class.forName("com.sun.nio.file.SensitivityWatchEventModifier");
+      return new WatchEvent.Modifier[] { (WatchEvent.Modifier) type.getField("HIGH").get(null) };
+    }
+    catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+      return new WatchEvent.Modifier[0];
+    }
+  }
+
+  /**
+   * Wait up to <code>timeoutMillis</code> for the file to change, returning false on timeout. 
+   * Returns once a burst of events has settled.
+   */
+  protected boolean awaitChange(long timeoutMillis) throws InterruptedException {
+
+    if( ! poll(timeoutMillis) )
+      return false;
+    while( poll(debounceMillis) )
+      ;
+    return true;
+  }
+
+  /**
+   * Wait for events, returning true if any concern the file.
+   */
+  private boolean poll(long timeoutMillis) throws InterruptedException {
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while( true ) {
+      long remaining = deadline - System.nanoTime();
+      if( remaining <= 0 )
+        return false;
+      WatchKey key = service.poll(remaining, TimeUnit.NANOSECONDS);
+      if( key == null )
+        return false;
+
+      boolean relevant = false;
+      for( WatchEvent<?> event : key.pollEvents() ) {
+        // Events were lost, so the file may have changed
+        if( event.kind() == OVERFLOW || file.getFileName().equals(event.context()) )
+          relevant = true;
+      }
+      key.reset();
+      if( relevant )
+        return true;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    service.close();
+  }
+}
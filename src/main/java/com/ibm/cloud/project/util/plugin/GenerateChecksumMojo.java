@@ -14,9 +14,24 @@
  */    
 package com.ibm.cloud.project.util.plugin;
 
-import static com.ibm.cloud.project.util.plugin.MojoUtil.getMD5Digest;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.getDigest;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.openDigestCache;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.saveDigestCache;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.xml.bind.DatatypeConverter;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -24,9 +39,31 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
 /**
- * <p>Generate an MD5 checksum for a specified file.</p>
+ * <p>Generate a checksum for a specified file, or a checksum manifest for a directory tree.</p>
+ * <p>Parameters:
+ * <ul>
+ * <li><b>file_path</b> A path on the local filesystem for the file to checksum
+ * <li><b>algorithm</b> One of md5, sha1, sha256, sha512, xxh64 or crc32c (optional, default=md5). 
+ * A <code>tree-</code> prefix, e.g. <code>tree-sha256</code>, selects a tree digest of 4 MiB chunks, so that 
+ * a single large file is hashed in parallel. 
+ * Checksums other than MD5 are prefixed with the algorithm name, e.g. <code>sha256:</code>
+ * <li><b>digest_cache</b> Reuse digests of unchanged files from an on-disk cache (optional, default=false)
+ * <li><b>digest_cache_dir</b> The digest cache directory (optional, default=~/.m2/project-util/digest-cache)
+ * <li><b>digest_cache_size</b> The maximum number of cached digests (optional, default=10000)
+ * <li><b>dir_path</b> A directory to checksum instead of a single file. Files are hashed in parallel
+ * and written as a sorted manifest of <code>path&lt;TAB&gt;size&lt;TAB&gt;digest</code> lines
+ * <li><b>includes</b> A glob matched against paths relative to <code>dir_path</code> (optional, default=**)
+ * <li><b>manifest_path</b> A file to write the manifest to (optional, default=stdout)
+ * <li><b>threads</b> The number of hashing threads (optional, default=available processors)
+ * <li><b>chunks_path</b> With <code>file_path</code> and a tree digest, a file to write the chunk digests to, 
+ * so that a later mismatch can name the byte ranges that changed (optional)
+ * <li><b>signature_path</b> With <code>file_path</code>, a file to write the block signature to, for <code>verify-file</code> 
+ * with <code>delta_repair</code>. Publish it beside the reference copy, with a ".blocksig" suffix (optional)
+ * <li><b>metrics_file</b> A file to write a JSON summary of timings, bytes and cache hits to (optional)
+ * </ul>
  * <p>Example:
- * <br><code>s=`mvn -q com.ibm.cloud:project-util-plugin:gen-cksum -Dfile_path=a.xml`</code></p>
+ * <br><code>s=`mvn -q com.ibm.cloud:project-util-plugin:gen-cksum -Dfile_path=a.xml`</code>
+ * <br><code>mvn -q com.ibm.cloud:project-util-plugin:gen-cksum -Ddir_path=config -Dincludes=**.xml -Dmanifest_path=config.cksum</code></p>
  */
 @Mojo(name = "gen-cksum", requiresProject = false)
 public class GenerateChecksumMojo extends AbstractMojo {
@@ -34,13 +71,137 @@ public class GenerateChecksumMojo extends AbstractMojo {
   @Parameter(property = "file_path")
   private String path;
 
+  @Parameter(property = "algorithm", defaultValue = "md5")
+  private String algorithm;
+
+  @Parameter(property = "digest_cache", defaultValue = "false")
+  private boolean digestCache;
+
+  @Parameter(property = "digest_cache_dir")
+  private String digestCacheDir;
+
+  @Parameter(property = "digest_cache_size")
+  private int digestCacheSize;
+
+  @Parameter(property = "dir_path")
+  private String dirPath;
+
+  @Parameter(property = "includes", defaultValue = "**")
+  private String includes;
+
+  @Parameter(property = "manifest_path")
+  private String manifestPath;
+
+  @Parameter(property = "threads")
+  private int threads;
+
+  @Parameter(property = "chunks_path")
+  private String chunksPath;
+
+  @Parameter(property = "signature_path")
+  private String signaturePath;
+
+  @Parameter(property = "metrics_file")
+  private String metricsFile;
+
   public void execute() throws MojoExecutionException {
+
+    ExecutionMetrics metrics = ExecutionMetrics.start("gen-cksum");
+    try {
+      generateChecksum();
+      metrics.succeeded();
+    }
+    finally {
+      metrics.finish(metricsFile, getLog());
+    }
+  }
+
+  private void generateChecksum() throws MojoExecutionException {
     
+    if( (path == null) == (dirPath == null) )
+      throw new MojoExecutionException("Generate Checksum: specify exactly one of file_path or dir_path");
+
+    DigestCache cache = openDigestCache(digestCache, digestCacheDir, digestCacheSize, getLog());
     try {
-      System.out.println(getMD5Digest(new File(path)));
+      DigestProvider provider = DigestAlgorithm.forName(algorithm);
+      if( chunksPath != null && (path == null || ! (provider instanceof TreeDigest)) )
+        throw new MojoExecutionException("Generate Checksum: chunks_path requires file_path and a tree- algorithm");
+      if( signaturePath != null && path == null )
+        throw new MojoExecutionException("Generate Checksum: signature_path requires file_path");
+      if( signaturePath != null )
+        writeSignature();
+      if( path != null )
+        StandardStreams.out().println(DigestAlgorithm.format(provider, generateDigest(provider, cache)));
+      else
+        generateManifest(provider, cache);
+    }
+    catch (MojoExecutionException e) {
+      throw e;
     }
     catch (Exception e) {
       throw new MojoExecutionException("Generate Checksum", e);
     }
+    finally {
+      saveDigestCache(cache, getLog());
+    }
+  }
+
+  private void writeSignature() throws IOException, NoSuchAlgorithmException {
+    BlockSignature signature = BlockSignature.generate(new File(path), BlockSignature.DEFAULT_BLOCK_SIZE);
+    try( Writer writer = Files.newBufferedWriter(Paths.get(signaturePath), StandardCharsets.UTF_8) ) {
+      signature.write(writer);
+    }
+  }
+
+  private String generateDigest(DigestProvider provider, DigestCache cache) throws Exception {
+
+    if( ! (provider instanceof TreeDigest) )
+      return getDigest(new File(path), provider, cache);
+
+    // Tree chunks are hashed on the pool the digest is computed from
+    TreeDigest tree = (TreeDigest) provider;
+    ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    try {
+      if( chunksPath == null )
+        return pool.submit(() -> getDigest(new File(path), provider, cache)).get();
+
+      TreeDigest.Chunks chunks = pool.submit(() -> tree.chunks(new File(path))).get();
+      try( Writer writer = Files.newBufferedWriter(Paths.get(chunksPath), StandardCharsets.UTF_8) ) {
+        chunks.write(writer);
+      }
+      return DatatypeConverter.printHexBinary(tree.root(chunks.digests));
+    }
+    catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+    finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private void generateManifest(DigestProvider provider, DigestCache cache) throws Exception {
+
+    Path root = Paths.get(dirPath);
+    int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    List<Path> files = ChecksumManifest.listFiles(root, includes);
+
+    if( manifestPath == null ) {
+      Writer writer = new OutputStreamWriter(StandardStreams.out(), StandardCharsets.UTF_8);
+      ChecksumManifest.generate(root, files, provider, cache, parallelism, writer);
+      return;
+    }
+
+    // Never list the manifest being written
+    Path manifest = Paths.get(manifestPath);
+    Path absoluteManifest = manifest.toAbsolutePath().normalize();
+    files.removeIf(file -> file.toAbsolutePath().normalize().equals(absoluteManifest));
+
+    try( Writer writer = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8) ) {
+      ChecksumManifest.generate(root, files, provider, cache, parallelism, writer);
+    }
+    catch (IOException e) {
+      Files.deleteIfExists(manifest);
+      throw e;
+    }
   }
 }
\ No newline at end of file
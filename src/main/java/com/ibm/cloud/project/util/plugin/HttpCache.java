@@ -0,0 +1,457 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * A local cache of HTTP(S) responses, for cksum and reference files that are fetched again and again.
+ * <p>Each response is stored with its <code>ETag</code> and <code>Last-Modified</code> validators. A 
+ * stored response is served without a request while it is fresh according to <code>Cache-Control: 
+ * max-age</code>; after that it is revalidated with <code>If-None-Match</code> or 
+ * <code>If-Modified-Since</code>, and a <code>304 Not Modified</code> is served from disk. Responses 
+ * marked <code>no-store</code> are never stored. Bodies transferred with a content coding are stored 
+ * decoded.</p>
+ * <p>Each entry is a single file, a header block followed by the body, replaced atomically. The 
+ * cache is bounded in total size, evicting the least recently used entries.</p>
+ */
+public class HttpCache {
+
+  static final String DEFAULT_DIR = System.getProperty("user.home") + "/.m2/project-util/http-cache";
+  static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+  private static final String SUFFIX = ".entry";
+
+  private final Path dir;
+  private final long maxBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  protected HttpCache(String dir, long maxBytes) throws IOException {
+    this.dir = Paths.get(dir != null ? dir : DEFAULT_DIR);
+    this.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+    Files.createDirectories(this.dir);
+  }
+
+  /**
+   * Open a stream for <code>url</code>, through the cache if the scheme is http or https.
+   */
+  protected InputStream open(URL url) throws IOException {
+
+    if( ! HttpTransport.isHttp(url) )
+      return url.openStream();
+
+    Path path = dir.resolve(key(url) + SUFFIX);
+    Entry entry = Entry.read(path);
+
+    if( entry != null && entry.isFresh() ) {
+      hits.incrementAndGet();
+      return entry.openBody(path);
+    }
+
+    Map<String,String> headers = new HashMap<String,String>();
+    headers.put("Accept-Encoding", HttpTransport.ACCEPT_ENCODING);
+    if( entry != null ) {
+      if( entry.etag != null )
+        headers.put("If-None-Match", entry.etag);
+      if( entry.lastModified != null )
+        headers.put("If-Modified-Since", entry.lastModified);
+    }
+
+    HttpTransport.Response response = HttpTransport.get().request(url, headers);
+    int status = response.getStatus();
+
+    if( entry != null && status == HttpURLConnection.HTTP_NOT_MODIFIED ) {
+      revalidations.incrementAndGet();
+      response.close();
+      Entry revalidated = new Entry(url.toString(), entry.etag, entry.lastModified, maxAge(response), System.currentTimeMillis());
+      revalidated.rewrite(path, dir);
+      return revalidated.openBody(path);
+    }
+
+    if( status < 200 || status > 299 ) {
+      response.close();
+      throw new IOException("HTTP status "+status+" for: "+url);
+    }
+
+    misses.incrementAndGet();
+    InputStream body = response.getBody();
+
+    String cacheControl = response.getHeader("Cache-Control");
+    if( cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-store") )
+      return body;
+
+    Entry fetched = new Entry(url.toString(), response.getHeader("ETag"), response.getHeader("Last-Modified"), maxAge(response), System.currentTimeMillis());
+    try {
+      return new StoringInputStream(body, fetched, path);
+    }
+    catch (IOException e) {
+      // Caching is best effort
+      return body;
+    }
+  }
+
+  protected long getHits() {
+    return hits.get();
+  }
+
+  protected long getRevalidations() {
+    return revalidations.get();
+  }
+
+  protected long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Delete the least recently used entries until the cache is within its size bound.
+   */
+  protected void evict() throws IOException {
+
+    List<Path> entries = new ArrayList<Path>();
+    long total = 0;
+    try( DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX) ) {
+      for( Path path : stream ) {
+        entries.add(path);
+        total += Files.size(path);
+      }
+    }
+
+    if( total <= maxBytes )
+      return;
+
+    Map<Path,FileTime> lastUsed = new LinkedHashMap<Path,FileTime>();
+    for( Path path : entries )
+      lastUsed.put(path, Files.getLastModifiedTime(path));
+    entries.sort((a, b) -> lastUsed.get(a).compareTo(lastUsed.get(b)));
+
+    for( Path path : entries ) {
+      if( total <= maxBytes )
+        break;
+      try {
+        long size = Files.size(path);
+        Files.delete(path);
+        total -= size;
+      }
+      catch (NoSuchFileException e) {
+        // evicted concurrently
+      }
+    }
+  }
+
+  private static long maxAge(HttpTransport.Response response) {
+
+    String cacheControl = response.getHeader("Cache-Control");
+    if( cacheControl == null )
+      return 0;
+
+    long maxAge = 0;
+    for( String directive : cacheControl.toLowerCase(Locale.ROOT).split(",") ) {
+      directive = directive.trim();
+      if( directive.equals("no-cache") )
+        return 0;
+      if( directive.startsWith("max-age=") ) {
+        try {
+          maxAge = Long.parseLong(directive.substring("max-age=".length()).replace("\"", ""));
+        }
+        catch (NumberFormatException e) {
+          maxAge = 0;
+        }
+      }
+    }
+    return Math.max(0, maxAge);
+  }
+
+  private static String key(URL url) throws IOException {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.toString().getBytes(StandardCharsets.UTF_8));
+      return DatatypeConverter.printHexBinary(digest).toLowerCase(Locale.ROOT);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static void moveIntoPlace(Path temp, Path path) throws IOException {
+    try {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static class Entry {
+
+    final String url;
+    final String etag;
+    final String lastModified;
+    final long maxAge;
+    final long validated;
+
+    int headerLength;
+
+    Entry(String url, String etag, String lastModified, long maxAge, long validated) {
+      this.url = url;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.maxAge = maxAge;
+      this.validated = validated;
+    }
+
+    boolean isFresh() {
+      return System.currentTimeMillis() < validated + maxAge * 1000;
+    }
+
+    byte[] header() {
+      StringBuilder header = new StringBuilder();
+      header.append("url: ").append(url).append('\n');
+      if( etag != null )
+        header.append("etag: ").append(etag).append('\n');
+      if( lastModified != null )
+        header.append("last-modified: ").append(lastModified).append('\n');
+      header.append("max-age: ").append(maxAge).append('\n');
+      header.append("validated: ").append(validated).append('\n');
+      header.append('\n');
+      return header.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static Entry read(Path path) throws IOException {
+
+      byte[] header = new byte[8192];
+      int length = 0;
+      try( InputStream in = Files.newInputStream(path) ) {
+        int n;
+        while( length < header.length && (n = in.read(header, length, header.length - length)) != -1 )
+          length += n;
+      }
+      catch (NoSuchFileException e) {
+        return null;
+      }
+
+      String url = null, etag = null, lastModified = null;
+      long maxAge = 0, validated = 0;
+      int start = 0;
+      for( int k=0; k<length; ++k ) {
+        if( header[k] != '\n' )
+          continue;
+        if( k == start ) {
+          if( url == null )
+            return null;
+          Entry entry = new Entry(url, etag, lastModified, maxAge, validated);
+          entry.headerLength = k + 1;
+          return entry;
+        }
+        String line = new String(header, start, k - start, StandardCharsets.UTF_8);
+        int colon = line.indexOf(": ");
+        if( colon > 0 ) {
+          String name = line.substring(0, colon);
+          String value = line.substring(colon + 2);
+          try {
+            if( name.equals("url") )
+              url = value;
+            else if( name.equals("etag") )
+              etag = value;
+            else if( name.equals("last-modified") )
+              lastModified = value;
+            else if( name.equals("max-age") )
+              maxAge = Long.parseLong(value);
+            else if( name.equals("validated") )
+              validated = Long.parseLong(value);
+          }
+          catch (NumberFormatException e) {
+            return null;
+          }
+        }
+        start = k + 1;
+      }
+
+      // Truncated or corrupt entry
+      return null;
+    }
+
+    InputStream openBody(Path path) throws IOException {
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+      InputStream in = Files.newInputStream(path);
+      long skipped = 0;
+      while( skipped < headerLength ) {
+        long n = in.skip(headerLength - skipped);
+        if( n <= 0 ) {
+          in.close();
+          throw new IOException("Truncated HTTP cache entry: "+path);
+        }
+        skipped += n;
+      }
+      return in;
+    }
+
+    void rewrite(Path path, Path dir) throws IOException {
+
+      Entry current = read(path);
+      if( current == null )
+        throw new IOException("Missing HTTP cache entry: "+path);
+
+      Path temp = Files.createTempFile(dir, "rewrite", ".tmp");
+      try {
+        try( OutputStream out = Files.newOutputStream(temp);
+             InputStream body = current.openBody(path) ) {
+          byte[] header = header();
+          out.write(header);
+          headerLength = header.length;
+          byte[] buff = new byte[8192];
+          int n;
+          while( (n = body.read(buff)) != -1 )
+            out.write(buff, 0, n);
+        }
+        moveIntoPlace(temp, path);
+      }
+      finally {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  /**
+   * Copies the response body into a new cache entry as it is read, and commits the entry only 
+   * if the body was read to the end.
+   */
+  private class StoringInputStream extends FilterInputStream implements HttpTransport.Abortable {
+
+    private final Entry entry;
+    private final Path path;
+    private final Path temp;
+    private final OutputStream out;
+    private boolean complete = false;
+    private volatile boolean failed = false;
+
+    StoringInputStream(InputStream in, Entry entry, Path path) throws IOException {
+      super(in);
+      this.entry = entry;
+      this.path = path;
+      this.temp = Files.createTempFile(dir, "fetch", ".tmp");
+      this.out = new BufferedOutputStream(Files.newOutputStream(temp, StandardOpenOption.WRITE));
+      byte[] header = entry.header();
+      out.write(header);
+      entry.headerLength = header.length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if( b == -1 )
+        complete = true;
+      else
+        store(new byte[] { (byte) b }, 0, 1);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if( n == -1 )
+        complete = true;
+      else
+        store(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // Skipped bytes would be missing from the entry
+      failed = true;
+      return super.skip(n);
+    }
+
+    @Override
+    public void abort() {
+      // A partial body is never stored
+      failed = true;
+      if( in instanceof HttpTransport.Abortable )
+        ((HttpTransport.Abortable) in).abort();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      }
+      finally {
+        commit();
+      }
+    }
+
+    private void store(byte[] b, int off, int len) {
+      if( failed )
+        return;
+      try {
+        out.write(b, off, len);
+      }
+      catch (IOException e) {
+        failed = true;
+      }
+    }
+
+    // Caching is best effort, so failures here never fail the download
+    private void commit() {
+      try {
+        out.close();
+        if( complete && ! failed ) {
+          moveIntoPlace(temp, path);
+          evict();
+        }
+      }
+      catch (IOException e) {
+        failed = true;
+      }
+      finally {
+        try {
+          Files.deleteIfExists(temp);
+        }
+        catch (IOException e) {
+          // left for the next eviction to ignore
+        }
+      }
+    }
+  }
+}
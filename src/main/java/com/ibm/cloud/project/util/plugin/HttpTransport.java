@@ -0,0 +1,380 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * The HTTP(S) transport shared by all remote fetches in a Maven session.
+ * <p>Requests go through {@link HttpURLConnection}, so proxies, redirects and authentication behave 
+ * as before, and connections are kept alive and reused between requests to the same host. This 
+ * class adds configurable connect and read timeouts, bounds the number of concurrent connections 
+ * per host, always consumes response bodies so that their connections can be reused, decodes 
+ * gzip and deflate content codings, and counts requests and TLS connections.</p>
+ * <p>TLS connections are counted through a shared socket factory, which is also required for the 
+ * JDK to reuse them. Plain HTTP connections cannot be observed through {@link HttpURLConnection}, 
+ * so only their requests are counted.</p>
+ */
+public class HttpTransport {
+
+  static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+  static final int DEFAULT_READ_TIMEOUT = 30000;
+  static final int DEFAULT_MAX_CONNECTIONS = 8;
+
+  /**
+   * The content codings requested for whole-body fetches. Range requests must not send it, since 
+   * their ranges would then apply to the encoded content.
+   */
+  static final String ACCEPT_ENCODING = "gzip, deflate";
+
+  private static volatile HttpTransport shared = new HttpTransport(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_MAX_CONNECTIONS);
+
+  private final int connectTimeout;
+  private final int readTimeout;
+  private final int maxConnections;
+
+  private final Map<String,Semaphore> hosts = new ConcurrentHashMap<String,Semaphore>();
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong tlsRequests = new AtomicLong();
+  private final CountingSSLSocketFactory sslSocketFactory = new CountingSSLSocketFactory(HttpsURLConnection.getDefaultSSLSocketFactory());
+
+  protected HttpTransport(int connectTimeout, int readTimeout, int maxConnections) {
+    this.connectTimeout = connectTimeout;
+    this.readTimeout = readTimeout;
+    this.maxConnections = maxConnections;
+  }
+
+  protected static HttpTransport get() {
+    return shared;
+  }
+
+  /**
+   * Replace the shared transport if the settings differ from the current one; non-positive 
+   * values select the defaults.
+   */
+  protected static synchronized HttpTransport configure(int connectTimeout, int readTimeout, int maxConnections) {
+
+    connectTimeout = connectTimeout > 0 ? connectTimeout : DEFAULT_CONNECT_TIMEOUT;
+    readTimeout = readTimeout > 0 ? readTimeout : DEFAULT_READ_TIMEOUT;
+    maxConnections = maxConnections > 0 ? maxConnections : DEFAULT_MAX_CONNECTIONS;
+
+    HttpTransport current = shared;
+    if( current.connectTimeout != connectTimeout || current.readTimeout != readTimeout || current.maxConnections != maxConnections )
+      shared = new HttpTransport(connectTimeout, readTimeout, maxConnections);
+
+    return shared;
+  }
+
+  protected static boolean isHttp(URL url) {
+    String protocol = url.getProtocol();
+    return "http".equals(protocol) || "https".equals(protocol);
+  }
+
+  /**
+   * A stream that can be closed without reading the rest of its content.
+   */
+  protected interface Abortable {
+
+    /**
+     * Stop the transfer, giving up the connection rather than draining it for reuse. A read 
+     * blocked in another thread fails.
+     */
+    void abort();
+  }
+
+  /**
+   * A response, holding one of its host's connection permits until it is closed.
+   */
+  protected static class Response implements AutoCloseable {
+
+    private final HttpURLConnection connection;
+    private final Semaphore permit;
+    private final int status;
+    private boolean released = false;
+
+    private Response(HttpURLConnection connection, Semaphore permit) throws IOException {
+      this.connection = connection;
+      this.permit = permit;
+      this.status = connection.getResponseCode();
+    }
+
+    protected int getStatus() {
+      return status;
+    }
+
+    protected String getHeader(String name) {
+      return connection.getHeaderField(name);
+    }
+
+    /**
+     * The response body, decoded if the server applied a gzip or deflate content coding. Closing it 
+     * consumes any unread content, so that the connection can be reused.
+     */
+    protected InputStream getBody() throws IOException {
+      InputStream body = null;
+      try {
+        body = connection.getInputStream();
+        return new Body(decode(body, connection.getContentEncoding()), body);
+      }
+      catch (IOException e) {
+        try {
+          if( body != null )
+            drain(body);
+        }
+        catch (IOException e2) {
+          // connection is not reusable, and will be closed by the JDK
+        }
+        close();
+        throw e;
+      }
+    }
+
+    /**
+     * Disconnect without consuming the rest of the response.
+     */
+    protected synchronized void abort() {
+      if( released )
+        return;
+      released = true;
+      try {
+        connection.disconnect();
+      }
+      finally {
+        permit.release();
+      }
+    }
+
+    @Override
+    public synchronized void close() {
+      if( released )
+        return;
+      released = true;
+      try {
+        InputStream error = connection.getErrorStream();
+        if( error != null )
+          drain(error);
+      }
+      catch (IOException e) {
+        // connection is not reusable, and will be closed by the JDK
+      }
+      finally {
+        permit.release();
+      }
+    }
+
+    private class Body extends FilterInputStream implements Abortable {
+
+      private final InputStream raw;
+
+      Body(InputStream in, InputStream raw) {
+        super(in);
+        this.raw = raw;
+      }
+
+      @Override
+      public void abort() {
+        Response.this.abort();
+      }
+
+      @Override
+      public void close() throws IOException {
+        try {
+          // Drain what is left on the wire, which a decoder may not read to the end
+          drain(raw);
+          in.close();
+        }
+        finally {
+          Response.this.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Send a GET request with additional request headers, waiting for a free connection to the host if necessary.
+   */
+  protected Response request(URL url, Map<String,String> headers) throws IOException {
+
+    Semaphore permit = hosts.computeIfAbsent(url.getProtocol() + "://" + url.getHost() + ":" + url.getPort(), k -> new Semaphore(maxConnections));
+    try {
+      permit.acquire();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted waiting for a connection to: "+url.getHost(), e);
+    }
+
+    try {
+      URLConnection connection = url.openConnection();
+      if( ! (connection instanceof HttpURLConnection) )
+        throw new IOException("Not an HTTP URL: "+url);
+
+      connection.setConnectTimeout(connectTimeout);
+      connection.setReadTimeout(readTimeout);
+      if( connection instanceof HttpsURLConnection ) {
+        ((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory);
+        tlsRequests.incrementAndGet();
+      }
+      for( Map.Entry<String,String> header : headers.entrySet() )
+        connection.setRequestProperty(header.getKey(), header.getValue());
+
+      requests.incrementAndGet();
+      return new Response((HttpURLConnection) connection, permit);
+    }
+    catch (IOException | RuntimeException e) {
+      permit.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Open the body of a GET request, failing for any status other than 2xx. The content may be 
+   * transferred compressed, and is decoded as it is read.
+   */
+  protected InputStream openStream(URL url) throws IOException {
+    Response response = request(url, Collections.singletonMap("Accept-Encoding", ACCEPT_ENCODING));
+    int status = response.getStatus();
+    if( status < 200 || status > 299 ) {
+      response.close();
+      throw new IOException("HTTP status "+status+" for: "+url);
+    }
+    return response.getBody();
+  }
+
+  protected long getRequests() {
+    return requests.get();
+  }
+
+  protected long getTLSConnectionsOpened() {
+    return sslSocketFactory.opened.get();
+  }
+
+  protected long getTLSConnectionsReused() {
+    return Math.max(0, tlsRequests.get() - sslSocketFactory.opened.get());
+  }
+
+  /**
+   * Decode a body with the given content coding. A deflate body should be zlib-wrapped, but some 
+   * servers send raw deflate data, so the zlib header is checked first.
+   */
+  protected static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+
+    String coding = contentEncoding != null ? contentEncoding.trim().toLowerCase(Locale.ROOT) : "";
+    switch( coding ) {
+    case "":
+    case "identity":
+      return body;
+    case "gzip":
+    case "x-gzip":
+      return new GZIPInputStream(body, 65536);
+    case "deflate":
+      PushbackInputStream in = new PushbackInputStream(body, 2);
+      byte[] header = new byte[2];
+      int n = 0, k;
+      while( n < 2 && (k = in.read(header, n, 2 - n)) != -1 )
+        n += k;
+      in.unread(header, 0, n);
+      boolean zlib = n == 2 && (header[0] & 0x0f) == 8 && (((header[0] & 0xff) << 8) | (header[1] & 0xff)) % 31 == 0;
+      return new InflaterInputStream(in, new Inflater(! zlib), 65536);
+    default:
+      throw new IOException("Unsupported Content-Encoding: "+contentEncoding);
+    }
+  }
+
+  private static void drain(InputStream inputStream) throws IOException {
+    try( InputStream in = inputStream ) {
+      byte[] buff = new byte[4096];
+      while( in.read(buff) != -1 )
+        ;
+    }
+  }
+
+  private static class CountingSSLSocketFactory extends SSLSocketFactory {
+
+    private final SSLSocketFactory delegate;
+    private final AtomicLong opened = new AtomicLong();
+
+    CountingSSLSocketFactory(SSLSocketFactory delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+      return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+      return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+      opened.incrementAndGet();
+      return delegate.createSocket();
+    }
+
+    @Override
+    public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+      opened.incrementAndGet();
+      return delegate.createSocket(s, host, port, autoClose);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+      opened.incrementAndGet();
+      return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+      opened.incrementAndGet();
+      return delegate.createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+      opened.incrementAndGet();
+      return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+      opened.incrementAndGet();
+      return delegate.createSocket(address, port, localAddress, localPort);
+    }
+  }
+}
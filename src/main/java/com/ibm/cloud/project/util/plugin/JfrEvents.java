@@ -0,0 +1,117 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Custom Flight Recorder events for goals and their phases. This class is only loaded once 
+ * {@link ExecutionMetrics} has found <code>jdk.jfr</code>, so the plugin still runs on JDKs 
+ * without it. Events are passed around as Object for the same reason.
+ * <p>To record them, e.g.: <code>MAVEN_OPTS=-XX:StartFlightRecording=filename=build.jfr</code>, 
+ * then <code>jfr print --categories "Project Util" build.jfr</code>.</p>
+ */
+final class JfrEvents {
+
+  @Name("com.ibm.cloud.project.util.Phase")
+  @Label("Project Util Phase")
+  @Category("Project Util")
+  @Description("A phase of a goal: parse, resolve, install, hash, download or replace")
+  static class PhaseEvent extends Event {
+
+    @Label("Goal")
+    String goal;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+  }
+
+  @Name("com.ibm.cloud.project.util.Goal")
+  @Label("Project Util Goal")
+  @Category("Project Util")
+  @Description("A goal execution, with its totals")
+  static class GoalEvent extends Event {
+
+    @Label("Goal")
+    String goal;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Bytes Hashed")
+    @DataAmount
+    long bytesHashed;
+
+    @Label("Bytes Fetched")
+    @DataAmount
+    long bytesFetched;
+
+    @Label("Cache Hits")
+    long cacheHits;
+
+    @Label("Cache Misses")
+    long cacheMisses;
+  }
+
+  private JfrEvents() {
+  }
+
+  /**
+   * Begin a phase event, or return null if it is not being recorded.
+   */
+  static Object beginPhase(String goal, String phase) {
+    PhaseEvent event = new PhaseEvent();
+    if( ! event.isEnabled() )
+      return null;
+    event.goal = goal;
+    event.phase = phase;
+    event.begin();
+    return event;
+  }
+
+  static void commitPhase(Object event, long bytes) {
+    PhaseEvent phaseEvent = (PhaseEvent) event;
+    phaseEvent.bytes = bytes;
+    phaseEvent.commit();
+  }
+
+  static Object beginGoal(String goal) {
+    GoalEvent event = new GoalEvent();
+    if( ! event.isEnabled() )
+      return null;
+    event.goal = goal;
+    event.begin();
+    return event;
+  }
+
+  static void commitGoal(Object event, boolean success, long bytesHashed, long bytesFetched, long cacheHits, long cacheMisses) {
+    GoalEvent goalEvent = (GoalEvent) event;
+    goalEvent.success = success;
+    goalEvent.bytesHashed = bytesHashed;
+    goalEvent.bytesFetched = bytesFetched;
+    goalEvent.cacheHits = cacheHits;
+    goalEvent.cacheMisses = cacheMisses;
+    goalEvent.commit();
+  }
+}
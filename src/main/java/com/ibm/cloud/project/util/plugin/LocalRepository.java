@@ -0,0 +1,158 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
+import org.apache.maven.shared.transfer.artifact.ArtifactCoordinate;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Direct access to POMs in the default layout of a local Maven repository, without the resolver.
+ */
+public class LocalRepository {
+
+  private static final String METADATA = "maven-metadata-local.xml";
+  private static final String REMOTE_REPOSITORIES = "_remote.repositories";
+
+  /**
+   * The path of a POM coordinate in the repository layout, <code>g/r/o/u/p/artifact/version/artifact-version.pom</code>.
+   */
+  protected static Path pomPath(Path repository, ArtifactCoordinate coordinate) {
+    return repository
+            .resolve(coordinate.getGroupId().replace('.', '/'))
+            .resolve(coordinate.getArtifactId())
+            .resolve(coordinate.getVersion())
+            .resolve(coordinate.getArtifactId() + "-" + coordinate.getVersion() + ".pom");
+  }
+
+  /**
+   * Whether a POM with these coordinates can be installed by copying: literal coordinates, and a 
+   * release version, since snapshots need version level metadata.
+   */
+  protected static boolean isPlainPom(ArtifactCoordinate coordinate) {
+    return ! (coordinate.getGroupId().contains("${") || coordinate.getArtifactId().contains("${") || coordinate.getVersion().contains("${")
+            || coordinate.getVersion().endsWith("-SNAPSHOT"));
+  }
+
+  /**
+   * Install a plain POM by copying it into the repository layout, recording it as locally installed
+   * and adding its version to the artifact's <code>maven-metadata-local.xml</code>, as 
+   * <code>mvn install</code> does. Returns the installed path.
+   */
+  protected static Path installPom(Path repository, ArtifactCoordinate coordinate, Path pomFile) throws IOException {
+
+    Path target = pomPath(repository, coordinate);
+    Path versionDir = target.getParent();
+    Files.createDirectories(versionDir);
+
+    Path temp = Files.createTempFile(versionDir, "." + target.getFileName(), ".tmp");
+    try {
+      Files.copy(pomFile, temp, StandardCopyOption.REPLACE_EXISTING);
+      moveIntoPlace(temp, target);
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+
+    // An empty repository id marks a local install for the enhanced local repository manager
+    Properties remotes = new Properties();
+    Path remotesFile = versionDir.resolve(REMOTE_REPOSITORIES);
+    try( InputStream in = Files.newInputStream(remotesFile) ) {
+      remotes.load(in);
+    }
+    catch (NoSuchFileException e) {
+      // first artifact of this version
+    }
+    remotes.setProperty(target.getFileName() + ">", "");
+    temp = Files.createTempFile(versionDir, "." + REMOTE_REPOSITORIES, ".tmp");
+    try {
+      try( OutputStream out = Files.newOutputStream(temp) ) {
+        remotes.store(out, "NOTE: This is a Maven Resolver internal implementation file, its format can be changed without prior notice.");
+      }
+      moveIntoPlace(temp, remotesFile);
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+
+    updateMetadata(versionDir.getParent().resolve(METADATA), coordinate);
+    return target;
+  }
+
+  private static void updateMetadata(Path metadataFile, ArtifactCoordinate coordinate) throws IOException {
+
+    Metadata metadata = null;
+    try( InputStream in = Files.newInputStream(metadataFile) ) {
+      metadata = new MetadataXpp3Reader().read(in, false);
+    }
+    catch (NoSuchFileException e) {
+      // first version of this artifact
+    }
+    catch (XmlPullParserException e) {
+      // rewritten below, as the resolver would
+    }
+    if( metadata == null ) {
+      metadata = new Metadata();
+      metadata.setGroupId(coordinate.getGroupId());
+      metadata.setArtifactId(coordinate.getArtifactId());
+    }
+
+    Versioning versioning = metadata.getVersioning();
+    if( versioning == null ) {
+      versioning = new Versioning();
+      metadata.setVersioning(versioning);
+    }
+    if( ! versioning.getVersions().contains(coordinate.getVersion()) )
+      versioning.addVersion(coordinate.getVersion());
+    versioning.setLatest(coordinate.getVersion());
+    versioning.setRelease(coordinate.getVersion());
+    versioning.updateTimestamp();
+
+    Path temp = Files.createTempFile(metadataFile.getParent(), "." + METADATA, ".tmp");
+    try {
+      try( Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8) ) {
+        new MetadataXpp3Writer().write(writer, metadata);
+      }
+      moveIntoPlace(temp, metadataFile);
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static void moveIntoPlace(Path temp, Path path) throws IOException {
+    try {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -33,6 +33,19 @@ public class Messages {
   protected static final String VERIFIED_PARENT_POM_REF = "verified_parent_pom_ref";
   protected static final String CKSUM_MISMATCH = "cksum_mismatch";
   protected static final String REPLACED_PROTECTED_FILE = "replaced_protected_file";
+  protected static final String MANIFEST_MISMATCH = "manifest_mismatch";
+  protected static final String VERIFIED_MANIFEST = "verified_manifest";
+  protected static final String MISSING_CHILD_POM = "missing_child_pom";
+  protected static final String CHILD_POM_MISMATCH = "child_pom_mismatch";
+  protected static final String CHILD_POM_FAILURES = "child_pom_failures";
+  protected static final String VERIFIED_CHILD_POMS = "verified_child_poms";
+  protected static final String REPO_MISMATCH = "repo_mismatch";
+  protected static final String VERIFIED_REPO = "verified_repo";
+  protected static final String QUARANTINED_FILE = "quarantined_file";
+  protected static final String CHANGED_RANGES = "changed_ranges";
+  protected static final String DELTA_REPAIRED = "delta_repaired";
+  protected static final String WATCHING_FILE = "watching_file";
+  protected static final String VERIFIED_PROTECTED_FILE = "verified_protected_file";
   
   protected static String get(String key) {
     return resourceBundle.getString(key);
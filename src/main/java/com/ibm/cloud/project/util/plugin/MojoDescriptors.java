@@ -0,0 +1,279 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.maven.plugin.Mojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * The goals of this plugin, read from its generated descriptor, <code>META-INF/maven/plugin.xml</code>,
+ * so that mojos can be configured from their <code>-D</code> property names outside of Maven. Only goals
+ * needing nothing from a Maven session or project, and no components, are available, other than 
+ * <code>daemon</code>, which would replace a running daemon, and <code>help</code>.
+ */
+public class MojoDescriptors {
+
+  static final String DESCRIPTOR = "META-INF/maven/plugin.xml";
+
+  private static final Set<String> EXCLUDED = new HashSet<String>(Arrays.asList("daemon", "help"));
+
+  private static class Parameter {
+    String field;
+    String type;
+    String defaultValue;
+    boolean required;
+  }
+
+  private static class Goal {
+    String implementation;
+    boolean supported = true;
+    // By property name
+    final Map<String,Parameter> parameters = new LinkedHashMap<String,Parameter>();
+  }
+
+  private final Map<String,Goal> goals;
+
+  private MojoDescriptors(Map<String,Goal> goals) {
+    this.goals = goals;
+  }
+
+  protected static MojoDescriptors load(ClassLoader classLoader) throws IOException {
+    try( InputStream in = classLoader.getResourceAsStream(DESCRIPTOR) ) {
+      if( in == null )
+        throw new IOException("Missing plugin descriptor: "+DESCRIPTOR);
+      return read(in);
+    }
+    catch (XMLStreamException e) {
+      throw new IOException("Invalid plugin descriptor: "+DESCRIPTOR, e);
+    }
+  }
+
+  protected static MojoDescriptors read(InputStream in) throws XMLStreamException {
+
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    XMLStreamReader reader = factory.createXMLStreamReader(in);
+
+    Map<String,Goal> goals = new HashMap<String,Goal>();
+    try {
+      Goal goal = null;
+      String goalName = null;
+      // Parameters by field name, until the configuration names their properties
+      Map<String,Parameter> fields = null;
+      String section = null;
+      Parameter parameter = null;
+      int depth = 0;
+
+      while( reader.hasNext() ) {
+        int event = reader.next();
+        if( event == XMLStreamConstants.END_ELEMENT ) {
+          if( --depth == 2 && goal != null ) {
+            for( Map.Entry<String,Parameter> entry : fields.entrySet() )
+              if( entry.getValue().required && ! goal.parameters.containsValue(entry.getValue()) )
+                goal.supported = false;
+            if( EXCLUDED.contains(goalName) )
+              goal.supported = false;
+            goals.put(goalName, goal);
+            goal = null;
+          }
+          continue;
+        }
+        if( event != XMLStreamConstants.START_ELEMENT )
+          continue;
+        ++depth;
+        String name = reader.getLocalName();
+
+        if( depth == 3 && name.equals("mojo") ) {
+          goal = new Goal();
+          fields = new HashMap<String,Parameter>();
+        }
+        else if( goal == null ) {
+          continue;
+        }
+        else if( depth == 4 ) {
+          section = name;
+          if( name.equals("goal") )
+            goalName = reader.getElementText().trim();
+          else if( name.equals("implementation") )
+            goal.implementation = reader.getElementText().trim();
+          else if( name.equals("requirements") )
+            goal.supported = false;
+          if( reader.getEventType() == XMLStreamConstants.END_ELEMENT )
+            --depth;
+        }
+        else if( depth == 5 && "parameters".equals(section) ) {
+          parameter = new Parameter();
+        }
+        else if( depth == 6 && "parameters".equals(section) ) {
+          String text = reader.getElementText().trim();
+          --depth;
+          if( name.equals("name") ) {
+            parameter.field = text;
+            fields.put(text, parameter);
+          }
+          else if( name.equals("type") )
+            parameter.type = text;
+          else if( name.equals("required") )
+            parameter.required = Boolean.parseBoolean(text);
+        }
+        else if( depth == 5 && "configuration".equals(section) ) {
+          String defaultValue = reader.getAttributeValue(null, "default-value");
+          String expression = reader.getElementText().trim();
+          --depth;
+          Parameter configured = fields.get(name);
+          if( configured == null )
+            continue;
+          if( expression.startsWith("${") && expression.endsWith("}") ) {
+            configured.defaultValue = defaultValue;
+            goal.parameters.put(expression.substring(2, expression.length() - 1), configured);
+          }
+          if( defaultValue != null && defaultValue.contains("${") )
+            goal.supported = false;
+        }
+      }
+    }
+    finally {
+      reader.close();
+    }
+
+    return new MojoDescriptors(goals);
+  }
+
+  /**
+   * The goals available outside of Maven.
+   */
+  protected TreeSet<String> getGoals() {
+    TreeSet<String> supported = new TreeSet<String>();
+    for( Map.Entry<String,Goal> goal : goals.entrySet() )
+      if( goal.getValue().supported )
+        supported.add(goal.getKey());
+    return supported;
+  }
+
+  /**
+   * A new mojo for the goal, configured from property values and the descriptor's defaults.
+   */
+  protected Mojo configure(String goalName, Map<String,String> properties) throws MojoExecutionException {
+
+    Goal goal = goals.get(goalName);
+    if( goal == null || ! goal.supported )
+      throw new MojoExecutionException("Unsupported goal: "+goalName+", expected one of: "+getGoals());
+
+    for( String property : properties.keySet() )
+      if( ! goal.parameters.containsKey(property) )
+        throw new MojoExecutionException("Unknown parameter for goal "+goalName+": "+property);
+
+    try {
+      Mojo mojo = (Mojo) Class.forName(goal.implementation, true, MojoDescriptors.class.getClassLoader()).newInstance();
+      for( Map.Entry<String,Parameter> entry : goal.parameters.entrySet() ) {
+        Parameter parameter = entry.getValue();
+        String value = properties.containsKey(entry.getKey()) ? properties.get(entry.getKey()) : parameter.defaultValue;
+        if( value == null ) {
+          if( parameter.required )
+            throw new MojoExecutionException("Missing required parameter for goal "+goalName+": "+entry.getKey());
+          continue;
+        }
+        Field field = field(mojo.getClass(), parameter.field);
+        field.setAccessible(true);
+        field.set(mojo, convert(value, parameter.type));
+      }
+      return mojo;
+    }
+    catch (ReflectiveOperationException | IllegalArgumentException e) {
+      throw new MojoExecutionException("Cannot configure goal: "+goalName, e);
+    }
+  }
+
+  /**
+   * Configure and execute a goal from <code>property=value</code> arguments, starting at <code>from</code>,
+   * logging any failure. Returns whether the goal succeeded.
+   */
+  protected boolean execute(String goal, String[] arguments, int from, Log log) {
+
+    Map<String,String> properties = new LinkedHashMap<String,String>();
+    for( int k=from; k<arguments.length; ++k ) {
+      int eq = arguments[k].indexOf('=');
+      if( eq <= 0 ) {
+        log.error("Invalid parameter, expected property=value: "+arguments[k]);
+        return false;
+      }
+      properties.put(arguments[k].substring(0, eq), arguments[k].substring(eq + 1));
+    }
+
+    try {
+      Mojo mojo = configure(goal, properties);
+      mojo.setLog(log);
+      mojo.execute();
+      return true;
+    }
+    catch (MojoFailureException | MojoExecutionException e) {
+      if( e.getCause() != null )
+        log.error(e.getMessage(), e.getCause());
+      else
+        log.error(e.getMessage());
+    }
+    catch (RuntimeException e) {
+      log.error(e);
+    }
+    return false;
+  }
+
+  private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+    for( Class<?> c = type; c != null; c = c.getSuperclass() ) {
+      try {
+        return c.getDeclaredField(name);
+      }
+      catch (NoSuchFieldException e) {
+        // declared by a superclass
+      }
+    }
+    throw new NoSuchFieldException(name);
+  }
+
+  private static Object convert(String value, String type) {
+    switch( type ) {
+      case "int":
+      case "java.lang.Integer":
+        return Integer.valueOf(value.trim());
+      case "long":
+      case "java.lang.Long":
+        return Long.valueOf(value.trim());
+      case "boolean":
+      case "java.lang.Boolean":
+        return Boolean.valueOf(value.trim());
+      default:
+        return value;
+    }
+  }
+}
@@ -14,43 +14,66 @@
  */    
 package com.ibm.cloud.project.util.plugin;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.MalformedURLException;
 import java.net.URL;
-import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.text.MessageFormat;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.bind.DatatypeConverter;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.shared.transfer.artifact.ArtifactCoordinate;
 import org.apache.maven.shared.transfer.artifact.DefaultArtifactCoordinate;
-import org.osgi.framework.Version;
-import org.osgi.framework.VersionRange;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 public class MojoUtil {
   
   static final boolean APPSODY_DEV_MODE = System.getenv("APPSODY_DEV_MODE") != null;
 
+  static final String GZIP_SUFFIX = ".gz";
+
+  private static final Random tempSuffix = new SecureRandom();
+
+  // Held for the goal in progress on this thread and the threads it starts, like its metrics, so 
+  // that goals running concurrently, e.g. in a mvn -T build, each use and release their own
+  private static final InheritableThreadLocal<HttpCache> httpCache = new InheritableThreadLocal<HttpCache>();
+  private static final InheritableThreadLocal<ReferenceStore> referenceStore = new InheritableThreadLocal<ReferenceStore>();
+
+  /**
+   * Runs each pipeline stage on its own daemon thread. Stages block on network and disk I/O, so 
+   * they are kept off the common fork-join pool.
+   */
+  protected static final Executor PIPELINE = task -> {
+    Thread thread = new Thread(task, "project-util-pipeline");
+    thread.setDaemon(true);
+    thread.start();
+  };
+
   
   protected static boolean verifyVersion(String version, String range) {
-    return VersionRange.valueOf(range).includes(Version.valueOf(version));
+    return VersionMatcher.includes(range, version);
   }
   
   protected static boolean verifyFileExists(String path) {
@@ -116,55 +139,477 @@ public class MojoUtil {
   }
   
   protected static String getMD5Digest(File file) throws IOException, NoSuchAlgorithmException {
+    return getDigest(file, DigestAlgorithm.MD5);
+  }
+  
+  protected static String getDigest(File file, DigestProvider provider) throws IOException, NoSuchAlgorithmException {
 
-    int bufflen = 8192;
-    
-    MessageDigest digest = MessageDigest.getInstance("MD5");     
-
-    try( FileInputStream inputStream = new FileInputStream(file) ) {
-      byte[] buff = new byte[bufflen];
-      int bytesRead = 0; 
-      while ((bytesRead = inputStream.read(buff)) != -1)
-        digest.update(buff, 0, bytesRead);      
+    byte[] value;
+    ExecutionMetrics metrics = ExecutionMetrics.current();
+    try( ExecutionMetrics.Timer timer = metrics.time(ExecutionMetrics.Phase.HASH) ) {
+      // Tree digests hash their chunks in parallel, rather than streaming the file
+      if( provider instanceof TreeDigest ) {
+        value = ((TreeDigest) provider).digest(file);
+      }
+      else {
+        DigestProvider.Hasher digest = provider.newHasher();
+        DigestEngine.update(digest, file);
+        value = digest.digest();
+      }
+      timer.addBytes(file.length());
     }
+    metrics.addBytesHashed(file.length());
           
-    return DatatypeConverter.printHexBinary(digest.digest());
+    return DatatypeConverter.printHexBinary(value);
+  }
+  
+  /**
+   * Digest a file, reusing the digest recorded in <code>cache</code> if the file is unchanged. 
+   * The cache may be null.
+   */
+  protected static String getDigest(File file, DigestProvider provider, DigestCache cache) throws IOException, NoSuchAlgorithmException {
+
+    if( cache == null )
+      return getDigest(file, provider);
+
+    String digest = cache.lookup(file, provider);
+    if( digest != null )
+      return digest;
+
+    BasicFileAttributes before = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    long hashStart = System.currentTimeMillis();
+    digest = getDigest(file, provider);
+    cache.store(file, provider, before, hashStart, digest);
+
+    return digest;
+  }
+  
+  /**
+   * Open the digest cache if <code>enabled</code>. A cache that cannot be opened is only 
+   * a warning, since verification works without it.
+   */
+  protected static DigestCache openDigestCache(boolean enabled, String dir, int maxEntries, Log log) {
+
+    if( ! enabled )
+      return null;
+
+    try {
+      return DigestCache.open(dir, maxEntries);
+    }
+    catch (IOException e) {
+      log.warn("Digest cache unavailable: "+e);
+      return null;
+    }
+  }
+
+  protected static void saveDigestCache(DigestCache cache, Log log) {
+
+    if( cache == null )
+      return;
+
+    log.debug(String.format("Digest cache hits: %d, misses: %d", cache.getHits(), cache.getMisses()));
+    ExecutionMetrics.current().cache("digest", cache.getHits(), cache.getMisses());
+    try {
+      cache.save();
+    }
+    catch (IOException e) {
+      log.warn("Digest cache not saved: "+e);
+    }
   }
   
   protected static boolean verifyFileIntegrity(File file, URL cksumURL) throws NoSuchAlgorithmException, IOException {
+      return verifyFileIntegrity(file, cksumURL, null, null);
+  }
+  
+  protected static boolean verifyFileIntegrity(File file, URL cksumURL, DigestProvider provider) throws NoSuchAlgorithmException, IOException {
+      return verifyFileIntegrity(file, cksumURL, provider, null);
+  }
+  
+  /**
+   * Verify a file against the checksum at <code>cksumURL</code>. If <code>provider</code> is null, 
+   * the algorithm is detected from the checksum format, and the file is hashed once the checksum 
+   * has arrived; otherwise the file is hashed while the checksum is fetched. The digest cache may be null.
+   */
+  protected static boolean verifyFileIntegrity(File file, URL cksumURL, DigestProvider provider, DigestCache cache) throws NoSuchAlgorithmException, IOException {
 
-      String localDigest = getMD5Digest(file);
-      String sourceDigest = downloadText(cksumURL);
+      if( provider == null ) {
+        String sourceCksum = downloadText(cksumURL).trim();
+        return verifyFileIntegrity(file, sourceCksum, checksumProvider(sourceCksum, provider), cache);
+      }
+
+      CompletableFuture<String> localDigest = supplyAsync(() -> getDigest(file, provider, cache), PIPELINE);
+      String sourceCksum = downloadText(cksumURL).trim();
+      checksumProvider(sourceCksum, provider);
 
-      return localDigest.equals(sourceDigest);
+      return await(localDigest).equalsIgnoreCase(DigestAlgorithm.digestValue(sourceCksum));
+  }
+
+  protected static boolean verifyFileIntegrity(File file, String sourceCksum, DigestProvider provider, DigestCache cache) throws NoSuchAlgorithmException, IOException {
+
+      String localDigest = getDigest(file, provider, cache);
+      String sourceDigest = DigestAlgorithm.digestValue(sourceCksum);
+
+      return localDigest.equalsIgnoreCase(sourceDigest);
+  }
+
+  /**
+   * The provider for a checksum: <code>requested</code> if not null, otherwise the algorithm 
+   * detected from the checksum format.
+   */
+  protected static DigestProvider checksumProvider(String cksum, DigestProvider requested) throws NoSuchAlgorithmException, IOException {
+
+    if( requested == null )
+      return DigestAlgorithm.detect(cksum);
+
+    if( cksum.indexOf(':') >= 0 && ! DigestAlgorithm.detect(cksum).getName().equals(requested.getName()) )
+      throw new IOException("Checksum algorithm mismatch: expected "+requested.getName()+", found: "+cksum.trim());
+
+    return requested;
   }
   
   protected static void replaceFile(URL sourceURL, File file ) throws IOException {
-    
-    String replacementText = downloadText(sourceURL);
-    
-    try( OutputStream outputStream = new FileOutputStream(file) ) {
-      outputStream.write(replacementText.getBytes());
+    try {
+      replaceFile(sourceURL, file, null, null);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Replace <code>file</code> with the content at <code>sourceURL</code>, decompressed if it is a 
+   * compressed reference. The content is streamed to a temporary file beside the target and hashed 
+   * in the same pass. If the digest does not match
+   * <code>expectedDigest</code>, the target is left untouched and an IOException is thrown; otherwise
+   * the temporary file is moved into place atomically. The provider and digest may be null to skip
+   * the check. With a reference store in use, a checked file is restored from the store if it is 
+   * there, and added to it otherwise.
+   */
+  protected static void replaceFile(URL sourceURL, File file, DigestProvider provider, String expectedDigest) throws IOException, NoSuchAlgorithmException {
+
+    int buflen = 65536;
+
+    if( provider != null && expectedDigest != null && restoreReference(provider, expectedDigest, file) )
+      return;
+
+    Path target = replacementTarget(file);
+    Path temp = replacementTemp(target);
+    ExecutionMetrics metrics = ExecutionMetrics.current();
+    try( ExecutionMetrics.Timer timer = metrics.time(ExecutionMetrics.Phase.REPLACE) ) {
+      DigestProvider.Hasher digest = provider != null ? provider.newHasher() : null;
+      long fetched = 0;
+      try( InputStream inputStream = openReference(sourceURL, file);
+           OutputStream outputStream = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE) ) {
+        byte[] buff = new byte[buflen];
+        int n;
+        while( (n = inputStream.read(buff)) != -1 ) {
+          if( digest != null )
+            digest.update(buff, 0, n);
+          outputStream.write(buff, 0, n);
+          fetched += n;
+        }
+      }
+      finally {
+        timer.addBytes(fetched);
+        metrics.addBytesFetched(fetched);
+        if( digest != null )
+          metrics.addBytesHashed(fetched);
+      }
+
+      if( digest != null && expectedDigest != null ) {
+        String actualDigest = DatatypeConverter.printHexBinary(digest.digest());
+        if( ! actualDigest.equalsIgnoreCase(expectedDigest) )
+          throw new IOException("Reference digest mismatch for: "+sourceURL+", expected: "+expectedDigest+", found: "+actualDigest);
+        storeReference(provider, expectedDigest, temp);
+      }
+
+      moveReplacement(temp, target);
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * The path to replace for <code>file</code>: the file a symbolic link points to, rather than the link.
+   */
+  protected static Path replacementTarget(File file) throws IOException {
+    Path target = file.getAbsoluteFile().toPath();
+    if( Files.isSymbolicLink(target) )
+      target = target.toRealPath();
+    return target;
+  }
+
+  /**
+   * A new temporary path beside <code>target</code>, for its replacement. The file is not created, so that
+   * it can be created with default permissions, unlike Files.createTempFile.
+   */
+  protected static Path replacementTemp(Path target) {
+    return target.resolveSibling("." + target.getFileName() + "." + Long.toHexString(tempSuffix.nextLong()) + ".tmp");
+  }
+
+  /**
+   * Move a replacement into place atomically, keeping the permissions of the file it replaces.
+   */
+  protected static void moveReplacement(Path temp, Path target) throws IOException {
+    moveReplacement(temp, target, true);
+  }
+
+  /**
+   * Move a replacement into place atomically, keeping the permissions of the file it replaces if 
+   * <code>keepPermissions</code>.
+   */
+  protected static void moveReplacement(Path temp, Path target, boolean keepPermissions) throws IOException {
+
+    PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+    if( keepPermissions && targetView != null && Files.exists(target) )
+      Files.setPosixFilePermissions(temp, targetView.readAttributes().permissions());
+
+    try {
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Run a task that may throw checked exceptions asynchronously on <code>executor</code>.
+   */
+  protected static <T> CompletableFuture<T> supplyAsync(Callable<T> task, Executor executor) {
+    CompletableFuture<T> future = new CompletableFuture<T>();
+    executor.execute(() -> {
+      try {
+        future.complete(task.call());
+      }
+      catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Wait for an asynchronous stage, rethrowing the exception it failed with.
+   */
+  protected static <T> T await(CompletableFuture<T> future) throws IOException, NoSuchAlgorithmException {
+    try {
+      return future.join();
+    }
+    catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if( cause instanceof IOException )
+        throw (IOException) cause;
+      if( cause instanceof NoSuchAlgorithmException )
+        throw (NoSuchAlgorithmException) cause;
+      if( cause instanceof RuntimeException )
+        throw (RuntimeException) cause;
+      if( cause instanceof Error )
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  protected static boolean isFileURL(URL url) {
+    return "file".equals(url.getProtocol());
+  }
+
+  /**
+   * A URL for <code>location</code>, which may also be a plain local path.
+   */
+  protected static URL toURL(String location) throws MalformedURLException {
+    try {
+      return new URL(location);
+    }
+    catch (MalformedURLException e) {
+      return new File(location).toURI().toURL();
+    }
+  }
+
+  /**
+   * Route the http(s) fetches of the goal in progress through a response cache, if <code>enabled</code>, 
+   * until {@link #releaseHttpCache(Log)}. A cache that cannot be opened is only a warning.
+   */
+  protected static void useHttpCache(boolean enabled, String dir, int maxMiB, Log log) {
+
+    if( ! enabled )
+      return;
+
+    try {
+      httpCache.set(new HttpCache(dir, maxMiB * 1024L * 1024L));
+    }
+    catch (IOException e) {
+      log.warn("HTTP cache unavailable: "+e);
     }
   }
 
+  protected static void releaseHttpCache(Log log) {
+
+    HttpCache cache = httpCache.get();
+    httpCache.remove();
+    if( cache == null )
+      return;
+
+    log.debug(String.format("HTTP cache hits: %d, revalidated: %d, misses: %d", cache.getHits(), cache.getRevalidations(), cache.getMisses()));
+    // A revalidated response was not fetched again, so it counts as a hit
+    ExecutionMetrics.current().cache("http", cache.getHits() + cache.getRevalidations(), cache.getMisses());
+  }
+
+  /**
+   * Whether <code>sourceURL</code> is a gzip-compressed reference copy of <code>file</code>: its path 
+   * ends with ".gz" and the file's name does not.
+   */
+  protected static boolean isCompressedReference(URL sourceURL, File file) {
+    return sourceURL.getPath().endsWith(GZIP_SUFFIX) && ! file.getName().endsWith(GZIP_SUFFIX);
+  }
+
+  /**
+   * Open the reference copy of <code>file</code> at <code>sourceURL</code>, decompressing it as it is 
+   * read if it is a compressed reference.
+   */
+  protected static InputStream openReference(URL sourceURL, File file) throws IOException {
+    InputStream in = openStream(sourceURL);
+    return isCompressedReference(sourceURL, file) ? gunzip(in) : in;
+  }
+
+  protected static InputStream gunzip(InputStream in) throws IOException {
+    try {
+      return new GZIPInputStream(in, 65536);
+    }
+    catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  protected static InputStream openStream(URL sourceURL) throws IOException {
+    HttpCache cache = httpCache.get();
+    if( cache != null )
+      return cache.open(sourceURL);
+    if( HttpTransport.isHttp(sourceURL) )
+      return HttpTransport.get().openStream(sourceURL);
+    return sourceURL.openStream();
+  }
+
+  /**
+   * Configure the shared HTTP transport; non-positive values select the defaults.
+   */
+  protected static void configureHttpTransport(int connectTimeout, int readTimeout, int maxConnections) {
+    HttpTransport.configure(connectTimeout, readTimeout, maxConnections);
+  }
+
+  protected static void logHttpTransport(Log log) {
+    HttpTransport transport = HttpTransport.get();
+    log.debug(String.format("HTTP requests: %d, TLS connections opened: %d, reused: %d", 
+            transport.getRequests(), transport.getTLSConnectionsOpened(), transport.getTLSConnectionsReused()));
+  }
+
+  /**
+   * Serve the verified reference files of the goal in progress from a local content-addressable store, 
+   * if <code>enabled</code>, until {@link #releaseReferenceStore(Log)}. A store that cannot be opened is 
+   * only a warning.
+   */
+  protected static void useReferenceStore(boolean enabled, String dir, int maxMiB, boolean links, Log log) {
+
+    if( ! enabled )
+      return;
+
+    try {
+      referenceStore.set(new ReferenceStore(dir, maxMiB * 1024L * 1024L, links));
+    }
+    catch (IOException e) {
+      log.warn("Reference store unavailable: "+e);
+    }
+  }
+
+  protected static void releaseReferenceStore(Log log) {
+
+    ReferenceStore store = referenceStore.get();
+    referenceStore.remove();
+    if( store == null )
+      return;
+
+    try {
+      store.evict();
+    }
+    catch (IOException e) {
+      log.warn("Reference store not trimmed: "+e);
+    }
+    log.debug(String.format("Reference store hits: %d, linked: %d, misses: %d, added: %d", store.getHits(), store.getLinked(), store.getMisses(), store.getAdded()));
+    ExecutionMetrics.current().cache("reference", store.getHits(), store.getMisses());
+  }
+
+  /**
+   * Whether the reference store in use holds the file with <code>digest</code>.
+   */
+  protected static boolean isReferenceStored(DigestProvider provider, String digest) throws IOException {
+    ReferenceStore store = referenceStore.get();
+    return store != null && store.contains(provider, digest);
+  }
+
+  /**
+   * Restore <code>file</code> from the reference store in use, returning false if there is no store 
+   * or it does not hold <code>digest</code>.
+   */
+  protected static boolean restoreReference(DigestProvider provider, String digest, File file) throws IOException {
+    ReferenceStore store = referenceStore.get();
+    return store != null && store.restore(provider, digest, file);
+  }
+
+  /**
+   * Add a file already checked to match <code>digest</code> to the reference store in use. The 
+   * store is best effort, so a failure is ignored.
+   */
+  protected static void storeReference(DigestProvider provider, String digest, Path file) {
+    ReferenceStore store = referenceStore.get();
+    if( store == null )
+      return;
+    try {
+      store.add(provider, digest, file);
+    }
+    catch (IOException e) {
+      // the next download will try again
+    }
+  }
+
+  /**
+   * Save a copy of the reference for <code>file</code>, which need not match <code>digest</code>. It 
+   * is restored from the reference store if it is there, and added to it if it matches.
+   */
+  protected static void copyReference(URL sourceURL, File file, DigestProvider provider, String digest) throws IOException, NoSuchAlgorithmException {
+
+    if( restoreReference(provider, digest, file) )
+      return;
+
+    replaceFile(sourceURL, file);
+    if( referenceStore.get() != null && getDigest(file, provider).equalsIgnoreCase(digest) )
+      storeReference(provider, digest, file.toPath());
+  }
+
+  /**
+   * Download a text file, decompressing it if its path ends with ".gz".
+   */
   protected static String downloadText(URL sourceURL) throws IOException {
     
     int buflen = 4096;
     
-    StringBuilder stringBuilder = new StringBuilder(buflen);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(buflen);
     
     byte[] buff = new byte[buflen];
-    try( InputStream inputStream = sourceURL.openStream() ) {
-      int n = inputStream.read(buff); 
-      do {
-        String s = new String(buff, 0, n);
-        stringBuilder.append(s);
-      }
-      while ( (n = inputStream.read(buff)) > 0 );
+    ExecutionMetrics metrics = ExecutionMetrics.current();
+    try( ExecutionMetrics.Timer timer = metrics.time(ExecutionMetrics.Phase.DOWNLOAD);
+         InputStream inputStream = sourceURL.getPath().endsWith(GZIP_SUFFIX) ? gunzip(openStream(sourceURL)) : openStream(sourceURL) ) {
+      int n;
+      while ( (n = inputStream.read(buff)) != -1 )
+        bytes.write(buff, 0, n);
+      timer.addBytes(bytes.size());
+    }
+    finally {
+      metrics.addBytesFetched(bytes.size());
     }
     
-    return stringBuilder.toString();
+    // Decode once, so multibyte characters are never split across reads
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
   }
   
   static private Map<String,String> getPomElementText(String pomPath, String[] elements) throws MojoExecutionException {
@@ -172,26 +617,19 @@ public class MojoUtil {
     if( ! verifyFileExists(pomPath) )
       throw new MojoExecutionException(MessageFormat.format(Messages.get(Messages.MISSING_POM), pomPath));
   
-    XPath xPath = XPathFactory.newInstance().newXPath();
-
-    Map<String,String> map = new HashMap<String,String>(); 
-    try {
-      Document pomObject = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(pomPath);      
-      for( int k=0; k<elements.length; ++k )
-        map.put(elements[k], getPomElementText(pomPath, pomObject, elements[k], xPath));      
+    Map<String,String> map; 
+    try( ExecutionMetrics.Timer timer = ExecutionMetrics.current().time(ExecutionMetrics.Phase.PARSE) ) {
+      map = PomCoordinateReader.read(pomPath, elements);
     }
-    catch (SAXException | IOException | ParserConfigurationException | XPathException e) {
+    catch (IOException | XMLStreamException e) {
       throw new MojoExecutionException("POM parsing error: "+pomPath, e);
     }
+
+    for( int k=0; k<elements.length; ++k )
+      if( ! map.containsKey(elements[k]) )
+        throw new MojoExecutionException(MessageFormat.format(Messages.get(Messages.MISSING_POM_ELEMENT), elements[k], pomPath));     
   
     return map;
   }
 
-  static private String getPomElementText(String pomPath, Document pomObject, String expectedElement, XPath xPath) throws XPathException, MojoExecutionException {
-    NodeList nodeList = (NodeList) xPath.compile(expectedElement).evaluate(pomObject, XPathConstants.NODESET);
-    if( nodeList.getLength() == 0 )
-      throw new MojoExecutionException(MessageFormat.format(Messages.get(Messages.MISSING_POM_ELEMENT), expectedElement, pomPath));     
-    return nodeList.item(0).getTextContent();
-  }
-
 }
@@ -0,0 +1,115 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the text of a few POM elements, such as <code>/project/version</code>, with a streaming 
+ * StAX parser that stops as soon as every requested element has been read.
+ */
+public class PomCoordinateReader {
+
+  // XMLInputFactory is not specified to be thread safe, so each thread keeps its own
+  private static final ThreadLocal<XMLInputFactory> factory = new ThreadLocal<XMLInputFactory>() {
+    @Override
+    protected XMLInputFactory initialValue() {
+      XMLInputFactory f = XMLInputFactory.newInstance();
+      f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      f.setProperty(XMLInputFactory.IS_COALESCING, true);
+      return f;
+    }
+  };
+
+  /**
+   * Read the text of each element path, e.g. <code>/project/parent/version</code>, from a POM. 
+   * Paths without a matching element are absent from the result.
+   */
+  protected static Map<String,String> read(String pomPath, String... elements) throws IOException, XMLStreamException {
+    return read(pomPath, Arrays.asList(elements));
+  }
+
+  protected static Map<String,String> read(String pomPath, Collection<String> elements) throws IOException, XMLStreamException {
+
+    Set<String> wanted = new HashSet<String>(elements);
+    Map<String,String> found = new HashMap<String,String>();
+
+    try( InputStream inputStream = Files.newInputStream(Paths.get(pomPath)) ) {
+      XMLStreamReader reader = factory.get().createXMLStreamReader(inputStream);
+      try {
+        StringBuilder path = new StringBuilder();
+        StringBuilder text = null;
+        String textPath = null;
+        int[] lengths = new int[16];
+        int depth = 0;
+
+        while( reader.hasNext() && found.size() < wanted.size() ) {
+          switch( reader.next() ) {
+
+            case XMLStreamConstants.START_ELEMENT:
+              if( depth == lengths.length )
+                lengths = Arrays.copyOf(lengths, depth * 2);
+              lengths[depth++] = path.length();
+              path.append('/').append(reader.getLocalName());
+              if( text == null && wanted.contains(path.toString()) && ! found.containsKey(path.toString()) ) {
+                textPath = path.toString();
+                text = new StringBuilder();
+              }
+              break;
+
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+              if( text != null )
+                text.append(reader.getText());
+              break;
+
+            case XMLStreamConstants.END_ELEMENT:
+              if( text != null && path.length() == textPath.length() ) {
+                found.put(textPath, text.toString());
+                text = null;
+                textPath = null;
+              }
+              path.setLength(lengths[--depth]);
+              break;
+
+            default:
+              break;
+          }
+        }
+      }
+      finally {
+        reader.close();
+      }
+    }
+
+    return found;
+  }
+}
@@ -0,0 +1,152 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A speculative download of a reference file, started before it is known whether the file it 
+ * may replace is intact. The content is streamed to a temporary file beside that file, and is 
+ * then either installed, once checked against the expected digest, or cancelled, which stops 
+ * the transfer and deletes the temporary file.
+ */
+public class Prefetch {
+
+  private final URL sourceURL;
+  private final boolean compressed;
+  private final Path temp;
+  private final CompletableFuture<Long> download = new CompletableFuture<Long>();
+
+  private volatile boolean cancelled = false;
+  private volatile InputStream stream;
+
+  private Prefetch(URL sourceURL, boolean compressed, Path temp) {
+    this.sourceURL = sourceURL;
+    this.compressed = compressed;
+    this.temp = temp;
+  }
+
+  /**
+   * Start fetching <code>sourceURL</code> into a temporary file beside <code>file</code>, decompressed 
+   * if it is a compressed reference.
+   */
+  protected static Prefetch start(URL sourceURL, File file, Executor executor) throws IOException {
+    Prefetch prefetch = new Prefetch(sourceURL, MojoUtil.isCompressedReference(sourceURL, file), MojoUtil.replacementTemp(MojoUtil.replacementTarget(file)));
+    executor.execute(prefetch::fetch);
+    return prefetch;
+  }
+
+  /**
+   * Wait for the download, check it against <code>expectedDigest</code> and move it into place 
+   * as <code>file</code>. The provider and digest may be null to skip the check. If the check fails, 
+   * the file is left untouched and an IOException is thrown.
+   */
+  protected void install(File file, DigestProvider provider, String expectedDigest) throws IOException, NoSuchAlgorithmException {
+    try {
+      MojoUtil.await(download);
+
+      if( provider != null && expectedDigest != null ) {
+        String actualDigest = MojoUtil.getDigest(temp.toFile(), provider);
+        if( ! actualDigest.equalsIgnoreCase(expectedDigest) )
+          throw new IOException("Reference digest mismatch for: "+sourceURL+", expected: "+expectedDigest+", found: "+actualDigest);
+        MojoUtil.storeReference(provider, expectedDigest, temp);
+      }
+
+      try( ExecutionMetrics.Timer timer = ExecutionMetrics.current().time(ExecutionMetrics.Phase.REPLACE) ) {
+        MojoUtil.moveReplacement(temp, MojoUtil.replacementTarget(file));
+      }
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Stop the download without waiting for it. The temporary file is deleted once the download 
+   * has stopped.
+   */
+  protected void cancel() {
+    cancelled = true;
+    InputStream in = stream;
+    if( in instanceof HttpTransport.Abortable )
+      ((HttpTransport.Abortable) in).abort();
+    download.whenComplete((fetched, e) -> deleteTemp());
+    // The JVM may exit before a blocked read notices
+    temp.toFile().deleteOnExit();
+  }
+
+  protected boolean isDone() {
+    return download.isDone();
+  }
+
+  private void fetch() {
+
+    int buflen = 65536;
+
+    long fetched = 0;
+    ExecutionMetrics metrics = ExecutionMetrics.current();
+    try( ExecutionMetrics.Timer timer = metrics.time(ExecutionMetrics.Phase.DOWNLOAD) ) {
+      try( InputStream inputStream = open();
+           OutputStream outputStream = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE) ) {
+        byte[] buff = new byte[buflen];
+        int n;
+        while( ! cancelled && (n = inputStream.read(buff)) != -1 ) {
+          outputStream.write(buff, 0, n);
+          fetched += n;
+        }
+      }
+      finally {
+        timer.addBytes(fetched);
+        metrics.addBytesFetched(fetched);
+      }
+      if( cancelled )
+        throw new CancellationException();
+      download.complete(fetched);
+    }
+    catch (Throwable e) {
+      if( ! cancelled )
+        deleteTemp();
+      download.completeExceptionally(e);
+    }
+  }
+
+  private InputStream open() throws IOException {
+    stream = MojoUtil.openStream(sourceURL);
+    // A cancel that raced with the open may not have seen the stream
+    if( cancelled && stream instanceof HttpTransport.Abortable )
+      ((HttpTransport.Abortable) stream).abort();
+    return compressed ? MojoUtil.gunzip(stream) : stream;
+  }
+
+  private void deleteTemp() {
+    try {
+      Files.deleteIfExists(temp);
+    }
+    catch (IOException e) {
+      // a stray temporary file is harmless
+    }
+  }
+}
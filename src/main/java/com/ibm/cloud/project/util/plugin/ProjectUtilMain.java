@@ -0,0 +1,74 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/**
+ * A standalone entry point running the goals of this plugin without Maven, for uses such as 
+ * <code>gen-cksum</code> or <code>check-version</code> in scripts, where Maven startup would dominate:
+ * <p><code>java -jar project-util-cli.jar goal [property=value ...]</code></p>
+ * <p>Parameters are given by their <code>-D</code> property names. The log is printed as by Maven, and 
+ * the exit code is 0 for success and 1 for failure, as for <code>mvn</code>. Goals that need a Maven
+ * session or project are not available. The <code>cli</code> build profile packages this as a shaded
+ * jar together with a class data sharing archive for fast startup.</p>
+ */
+public class ProjectUtilMain {
+
+  public static void main(String[] args) {
+    System.exit(run(args));
+  }
+
+  protected static int run(String[] args) {
+
+    // As mvn without -X
+    SystemStreamLog log = new SystemStreamLog() {
+      @Override
+      public boolean isDebugEnabled() {
+        return false;
+      }
+
+      @Override
+      public void debug(CharSequence content) {
+      }
+
+      @Override
+      public void debug(CharSequence content, Throwable error) {
+      }
+
+      @Override
+      public void debug(Throwable error) {
+      }
+    };
+
+    MojoDescriptors descriptors;
+    try {
+      descriptors = MojoDescriptors.load(ProjectUtilMain.class.getClassLoader());
+    }
+    catch (IOException e) {
+      log.error(e);
+      return DaemonProtocol.FAILURE;
+    }
+
+    if( args.length == 0 ) {
+      log.error("Usage: project-util goal [property=value ...], with goal one of: "+descriptors.getGoals());
+      return DaemonProtocol.FAILURE;
+    }
+
+    return descriptors.execute(args[0], args, 1, log) ? DaemonProtocol.SUCCESS : DaemonProtocol.FAILURE;
+  }
+}
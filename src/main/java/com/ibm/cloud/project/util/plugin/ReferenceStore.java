@@ -0,0 +1,308 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local content-addressable store of verified reference files, shared by all workspaces on a host.
+ * <p>Entries are keyed by digest algorithm and digest, and are only added once their content has 
+ * been checked against an expected digest. A file is restored from the store as a hard link where 
+ * the store is on the same filesystem, and otherwise as a copy with {@link FileChannel#transferTo}, 
+ * which the JDK and kernel may turn into an in-kernel copy or a copy-on-write clone.</p>
+ * <p>Linked files share the entry's read-only permissions and timestamps. Each entry has a stamp of 
+ * its size and modification time, so an entry modified through a link is detected and dropped, 
+ * rather than served. The stamp's own modification time records when the entry was last used, and 
+ * the store is bounded in total size, evicting the least recently used entries.</p>
+ */
+public class ReferenceStore {
+
+  static final String DEFAULT_DIR = System.getProperty("user.home") + "/.m2/project-util/reference-store";
+  static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+  private static final String STAMP_SUFFIX = ".stamp";
+
+  private final Path dir;
+  private final long maxBytes;
+  private final boolean links;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong linked = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong added = new AtomicLong();
+
+  protected ReferenceStore(String dir, long maxBytes, boolean links) throws IOException {
+    this.dir = Paths.get(dir != null ? dir : DEFAULT_DIR);
+    this.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+    this.links = links;
+    Files.createDirectories(this.dir);
+  }
+
+  /**
+   * Whether the store holds a valid entry for <code>digest</code>.
+   */
+  protected boolean contains(DigestProvider provider, String digest) throws IOException {
+    return isValid(entryPath(provider, digest));
+  }
+
+  /**
+   * Restore <code>file</code> from the entry for <code>digest</code>, returning false if there is none.
+   */
+  protected boolean restore(DigestProvider provider, String digest, File file) throws IOException {
+
+    Path entry = entryPath(provider, digest);
+    if( ! isValid(entry) ) {
+      misses.incrementAndGet();
+      return false;
+    }
+
+    Path target = MojoUtil.replacementTarget(file);
+    Path temp = MojoUtil.replacementTemp(target);
+    try( ExecutionMetrics.Timer timer = ExecutionMetrics.current().time(ExecutionMetrics.Phase.REPLACE) ) {
+      if( links && link(temp, entry) ) {
+        // The link must keep the entry's permissions, which belong to the entry too
+        MojoUtil.moveReplacement(temp, target, false);
+        linked.incrementAndGet();
+      }
+      else {
+        timer.addBytes(copy(entry, temp));
+        MojoUtil.moveReplacement(temp, target);
+      }
+      touch(entry);
+      hits.incrementAndGet();
+      return true;
+    }
+    catch (NoSuchFileException e) {
+      // evicted concurrently
+      misses.incrementAndGet();
+      return false;
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Add a copy of <code>source</code>, which must already have been checked to match <code>digest</code>.
+   */
+  protected void add(DigestProvider provider, String digest, Path source) throws IOException {
+
+    Path entry = entryPath(provider, digest);
+    if( isValid(entry) )
+      return;
+
+    Files.createDirectories(entry.getParent());
+    Path temp = Files.createTempFile(entry.getParent(), "add", ".tmp");
+    Path stampTemp = Files.createTempFile(entry.getParent(), "stamp", ".tmp");
+    try {
+      Files.delete(temp);
+      copy(source, temp);
+      PosixFileAttributeView view = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+      if( view != null )
+        view.setPermissions(PosixFilePermissions.fromString("r--r--r--"));
+
+      BasicFileAttributes attributes = Files.readAttributes(temp, BasicFileAttributes.class);
+      Files.write(stampTemp, stamp(attributes).getBytes(StandardCharsets.UTF_8));
+      // The stamp first, so that a reader never sees an entry with the stamp of an older one
+      moveIntoPlace(stampTemp, stampPath(entry));
+      moveIntoPlace(temp, entry);
+      added.incrementAndGet();
+    }
+    finally {
+      Files.deleteIfExists(temp);
+      Files.deleteIfExists(stampTemp);
+    }
+  }
+
+  protected long getHits() {
+    return hits.get();
+  }
+
+  protected long getLinked() {
+    return linked.get();
+  }
+
+  protected long getMisses() {
+    return misses.get();
+  }
+
+  protected long getAdded() {
+    return added.get();
+  }
+
+  /**
+   * Delete the least recently used entries until the store is within its size bound.
+   */
+  protected void evict() throws IOException {
+
+    List<Path> entries = new ArrayList<Path>();
+    Map<Path,FileTime> lastUsed = new LinkedHashMap<Path,FileTime>();
+    long total = 0;
+    try( DirectoryStream<Path> algorithms = Files.newDirectoryStream(dir, Files::isDirectory) ) {
+      for( Path algorithm : algorithms ) {
+        try( DirectoryStream<Path> stream = Files.newDirectoryStream(algorithm, path -> ! isStamp(path) && ! path.toString().endsWith(".tmp")) ) {
+          for( Path path : stream ) {
+            try {
+              long size = Files.size(path);
+              FileTime used = Files.exists(stampPath(path)) ? Files.getLastModifiedTime(stampPath(path)) : FileTime.fromMillis(0);
+              entries.add(path);
+              lastUsed.put(path, used);
+              total += size;
+            }
+            catch (NoSuchFileException e) {
+              // evicted concurrently
+            }
+          }
+        }
+      }
+    }
+
+    if( total <= maxBytes )
+      return;
+
+    entries.sort((a, b) -> lastUsed.get(a).compareTo(lastUsed.get(b)));
+
+    for( Path path : entries ) {
+      if( total <= maxBytes )
+        break;
+      try {
+        long size = Files.size(path);
+        delete(path);
+        total -= size;
+      }
+      catch (NoSuchFileException e) {
+        // evicted concurrently
+      }
+    }
+  }
+
+  private Path entryPath(DigestProvider provider, String digest) throws IOException {
+    String name = provider.getName().toLowerCase(Locale.ROOT);
+    String key = digest.toLowerCase(Locale.ROOT);
+    if( ! name.matches("[a-z0-9-]+") || ! key.matches("[0-9a-f]+") )
+      throw new IOException("Invalid reference store key: "+name+":"+digest);
+    return dir.resolve(name).resolve(key);
+  }
+
+  /**
+   * An entry is valid if its size and modification time still match its stamp. An entry that does 
+   * not is dropped.
+   */
+  private boolean isValid(Path entry) throws IOException {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+      String stamp = new String(Files.readAllBytes(stampPath(entry)), StandardCharsets.UTF_8);
+      if( stamp.equals(stamp(attributes)) )
+        return true;
+      delete(entry);
+      return false;
+    }
+    catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  private static String stamp(BasicFileAttributes attributes) {
+    return attributes.size() + " " + attributes.lastModifiedTime().toMillis() + "\n";
+  }
+
+  private static Path stampPath(Path entry) {
+    return entry.resolveSibling(entry.getFileName() + STAMP_SUFFIX);
+  }
+
+  private static boolean isStamp(Path path) {
+    return path.getFileName().toString().endsWith(STAMP_SUFFIX);
+  }
+
+  private static void touch(Path entry) {
+    try {
+      Files.setLastModifiedTime(stampPath(entry), FileTime.fromMillis(System.currentTimeMillis()));
+    }
+    catch (IOException e) {
+      // only affects eviction order
+    }
+  }
+
+  private static void delete(Path entry) throws IOException {
+    try {
+      Files.deleteIfExists(stampPath(entry));
+    }
+    finally {
+      Files.delete(entry);
+    }
+  }
+
+  /**
+   * Hard link <code>link</code> to <code>entry</code>, returning false if the filesystem does not 
+   * support it, for example across filesystems.
+   */
+  private static boolean link(Path link, Path entry) throws NoSuchFileException {
+    try {
+      Files.createLink(link, entry);
+      return true;
+    }
+    catch (NoSuchFileException e) {
+      throw e;
+    }
+    catch (IOException | UnsupportedOperationException | SecurityException e) {
+      return false;
+    }
+  }
+
+  private static long copy(Path source, Path target) throws IOException {
+    try( FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+         FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE) ) {
+      long size = in.size();
+      long position = 0;
+      while( position < size ) {
+        long n = in.transferTo(position, size - position, out);
+        if( n <= 0 )
+          throw new IOException("Truncated copy of: "+source);
+        position += n;
+      }
+      return size;
+    }
+  }
+
+  private static void moveIntoPlace(Path temp, Path path) throws IOException {
+    try {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * A persisted record of the files of a local repository that have been verified against their 
+ * checksum sidecars, so that later runs only verify new or changed files.
+ * <p>An entry records the size and modification time of the file and of its sidecar, and is only 
+ * valid while those are unchanged. Files modified within {@link DigestCache#RACY_WINDOW_MS} of
+ * being verified are not recorded, as for the digest cache.</p>
+ */
+public class RepositoryCheckpoint {
+
+  static final String DEFAULT_DIR = System.getProperty("user.home") + "/.m2/project-util/repo-checkpoint";
+
+  private static final String SUFFIX = ".ckpt";
+
+  private final Path checkpointFile;
+  private final Map<String,String> entries = new ConcurrentHashMap<String,String>();
+
+  private RepositoryCheckpoint(Path checkpointFile) {
+    this.checkpointFile = checkpointFile;
+  }
+
+  /**
+   * Open the checkpoint of a repository in <code>dir</code>, or the default directory under <code>~/.m2</code> if null.
+   */
+  protected static RepositoryCheckpoint open(String dir, Path repository) throws IOException {
+
+    RepositoryCheckpoint checkpoint = new RepositoryCheckpoint(Paths.get(dir != null ? dir : DEFAULT_DIR).resolve(key(repository) + SUFFIX));
+
+    try( BufferedReader reader = Files.newBufferedReader(checkpoint.checkpointFile, StandardCharsets.UTF_8) ) {
+      String line;
+      while( (line = reader.readLine()) != null ) {
+        int tab = line.indexOf('\t');
+        if( tab > 0 )
+          checkpoint.entries.put(line.substring(0, tab), line.substring(tab + 1));
+      }
+    }
+    catch (NoSuchFileException e) {
+      // first run
+    }
+
+    return checkpoint;
+  }
+
+  protected boolean isVerified(Path file, Path sidecar) throws IOException {
+    return stamp(file, sidecar).equals(entries.get(file.toString()));
+  }
+
+  /**
+   * Record a file as verified, given the stamp taken with {@link #stamp} before it was hashed. Nothing 
+   * is recorded if the file or sidecar has changed since, or the file was modified too recently.
+   */
+  protected void verified(Path file, Path sidecar, String stamp, long verifyStart) throws IOException {
+    if( verifyStart - Files.getLastModifiedTime(file).toMillis() >= DigestCache.RACY_WINDOW_MS && stamp.equals(stamp(file, sidecar)) )
+      entries.put(file.toString(), stamp);
+  }
+
+  protected void forget(Path file) {
+    entries.remove(file.toString());
+  }
+
+  protected static String stamp(Path file, Path sidecar) throws IOException {
+    return Files.size(file) + "\t" + Files.getLastModifiedTime(file).toMillis() + "\t" + Files.size(sidecar) + "\t" + Files.getLastModifiedTime(sidecar).toMillis();
+  }
+
+  /**
+   * Drop the entries of files that are no longer in the repository, such as purged snapshots.
+   */
+  protected void retain(Collection<Path> files) {
+    Set<String> current = new HashSet<String>(files.size());
+    for( Path file : files )
+      current.add(file.toString());
+    entries.keySet().retainAll(current);
+  }
+
+  protected void clear() {
+    entries.clear();
+  }
+
+  protected int size() {
+    return entries.size();
+  }
+
+  /**
+   * Replace the persisted checkpoint atomically. This may be called repeatedly during a run, so that
+   * an interrupted run can be resumed.
+   */
+  protected synchronized void save() throws IOException {
+
+    Files.createDirectories(checkpointFile.getParent());
+    Path temp = Files.createTempFile(checkpointFile.getParent(), checkpointFile.getFileName().toString(), ".tmp");
+    try {
+      try( BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8) ) {
+        for( Map.Entry<String,String> entry : entries.entrySet() ) {
+          writer.write(entry.getKey());
+          writer.write('\t');
+          writer.write(entry.getValue());
+          writer.write('\n');
+        }
+      }
+      try {
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static String key(Path repository) throws IOException {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(repository.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+      return DatatypeConverter.printHexBinary(digest).toLowerCase(Locale.ROOT);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * <p>Find the highest version of an artifact installed in the local Maven repository that satisfies a
+ * semantic version range, the reverse of <code>check-version</code>. Lookups use a persisted, sorted 
+ * version index per groupId:artifactId, refreshed when the repository changes.
+ * <p>Parameters:
+ * <ul>
+ * <li><b>group_id</b> The groupId of the artifact
+ * <li><b>artifact_id</b> The artifactId of the artifact
+ * <li><b>range_spec</b> The version range to satisfy
+ * <li><b>output_file</b> A file to write the resolved version to (optional)
+ * <li><b>index_dir</b> The version index directory (optional, default=~/.m2/project-util/version-index)
+ * <li><b>metrics_file</b> A file to write a JSON summary of timings, bytes and cache hits to (optional)
+ * </ul>
+ * <p>Example:
+ * <br><code>mvn -q com.ibm.cloud:project-util-plugin:resolve-version -Dgroup_id=dev.appsody -Dartifact_id=spring-boot2-stack -Drange_spec="[0.3,0.4)"</code></p>
+ */
+@Mojo(name = "resolve-version", requiresProject = false)
+public class ResolveVersionMojo extends AbstractMojo {
+
+  @Parameter(property = "group_id", required = true)
+  private String groupId;
+
+  @Parameter(property = "artifact_id", required = true)
+  private String artifactId;
+
+  @Parameter(property = "range_spec", required = true)
+  private String range;
+
+  @Parameter(property = "output_file")
+  private String outputFile;
+
+  @Parameter(property = "index_dir")
+  private String indexDir;
+
+  @Parameter(property = "metrics_file")
+  private String metricsFile;
+
+  @Parameter( defaultValue = "${session}", required = true, readonly = true )
+  private MavenSession session;
+
+
+  public void execute() throws MojoExecutionException, MojoFailureException {
+
+    ExecutionMetrics metrics = ExecutionMetrics.start("resolve-version");
+    try {
+      resolveVersion();
+      metrics.succeeded();
+    }
+    finally {
+      metrics.finish(metricsFile, getLog());
+    }
+  }
+
+  private void resolveVersion() throws MojoExecutionException, MojoFailureException {
+
+    Path repository = Paths.get(session.getLocalRepository().getBasedir());
+
+    String version;
+    try( ExecutionMetrics.Timer timer = ExecutionMetrics.current().time(ExecutionMetrics.Phase.RESOLVE) ) {
+      version = VersionIndex.load(indexDir, repository, groupId, artifactId).highest(range);
+    }
+    catch (IOException e) {
+      throw new MojoExecutionException("Resolve Version", e);
+    }
+
+    if( version == null )
+      throw new MojoFailureException("No installed version of " + groupId + ":" + artifactId + " for spec: '" + range + "'");
+
+    getLog().info("Resolved " + groupId + ":" + artifactId + " for range spec " + range + " to version " + version);
+
+    if( outputFile != null ) {
+      try {
+        Files.write(Paths.get(outputFile), (version + "\n").getBytes(StandardCharsets.UTF_8));
+      }
+      catch (IOException e) {
+        throw new MojoExecutionException("Resolve Version", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.shared.transfer.artifact.ArtifactCoordinate;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolver;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResolverException;
+import org.apache.maven.shared.transfer.artifact.resolve.ArtifactResult;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Parsed POM coordinates and artifact resolution results shared by every mojo execution of a Maven
+ * session, so that each module of a reactor build after the first reuses the work of the first.
+ * POM entries are keyed by canonical path, modification time and size; resolution results by
+ * local repository and coordinate; successes are only reused while the resolved file still exists.
+ */
+public class SessionCache {
+
+  private static final Object KEY = SessionCache.class.getName();
+
+  private final Map<String,ArtifactCoordinate> coordinates = new ConcurrentHashMap<String,ArtifactCoordinate>();
+  private final Map<String,ArtifactResult> resolutions = new ConcurrentHashMap<String,ArtifactResult>();
+  private final Map<String,ArtifactResolverException> failures = new ConcurrentHashMap<String,ArtifactResolverException>();
+
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * The cache of a session, created on first use. Without a repository session the cache is private
+   * to the caller.
+   */
+  protected static SessionCache get(MavenSession session) {
+
+    RepositorySystemSession repositorySession = session == null ? null : session.getRepositorySession();
+    if( repositorySession == null )
+      return new SessionCache();
+
+    SessionData data = repositorySession.getData();
+    while( true ) {
+      Object cache = data.get(KEY);
+      if( cache instanceof SessionCache )
+        return (SessionCache) cache;
+      SessionCache created = new SessionCache();
+      if( data.set(KEY, cache, created) )
+        return created;
+    }
+  }
+
+  protected ArtifactCoordinate getPomCoordinate(String pomPath) throws MojoExecutionException {
+    String key = pomKey("project", pomPath);
+    if( key == null )
+      return MojoUtil.getPomCoordinate(pomPath);
+    ArtifactCoordinate coordinate = coordinates.get(key);
+    if( coordinate == null ) {
+      misses.incrementAndGet();
+      coordinate = MojoUtil.getPomCoordinate(pomPath);
+      coordinates.put(key, coordinate);
+    }
+    else
+      hits.incrementAndGet();
+    return coordinate;
+  }
+
+  protected ArtifactCoordinate getParentPomCoordinate(String pomPath) throws MojoExecutionException {
+    String key = pomKey("parent", pomPath);
+    if( key == null )
+      return MojoUtil.getParentPomCoordinate(pomPath);
+    ArtifactCoordinate coordinate = coordinates.get(key);
+    if( coordinate == null ) {
+      misses.incrementAndGet();
+      coordinate = MojoUtil.getParentPomCoordinate(pomPath);
+      coordinates.put(key, coordinate);
+    }
+    else
+      hits.incrementAndGet();
+    return coordinate;
+  }
+
+  /**
+   * Resolve an artifact, reusing an earlier result of this session. Failures are remembered too, until
+   * {@link #forget} is called for the coordinate, so that a missing artifact is looked up only once.
+   */
+  protected ArtifactResult resolveArtifact(ArtifactResolver resolver, ProjectBuildingRequest request, ArtifactCoordinate coordinate) throws ArtifactResolverException {
+    String key = request.getLocalRepository().getBasedir() + '\0' + coordinate;
+    ArtifactResult result = resolutions.get(key);
+    if( result != null && result.getArtifact().getFile() != null && result.getArtifact().getFile().isFile() ) {
+      hits.incrementAndGet();
+      return result;
+    }
+    ArtifactResolverException failure = failures.get(key);
+    if( failure != null ) {
+      hits.incrementAndGet();
+      throw failure;
+    }
+    misses.incrementAndGet();
+    try( ExecutionMetrics.Timer timer = ExecutionMetrics.current().time(ExecutionMetrics.Phase.RESOLVE) ) {
+      result = resolver.resolveArtifact(request, coordinate);
+    }
+    catch (ArtifactResolverException e) {
+      failures.put(key, e);
+      throw e;
+    }
+    resolutions.put(key, result);
+    return result;
+  }
+
+  /**
+   * Forget a failed resolution, e.g. once the artifact has been installed.
+   */
+  protected void forget(ProjectBuildingRequest request, ArtifactCoordinate coordinate) {
+    failures.remove(request.getLocalRepository().getBasedir() + '\0' + coordinate);
+  }
+
+  protected int getHits() {
+    return hits.get();
+  }
+
+  protected int getMisses() {
+    return misses.get();
+  }
+
+  private static String pomKey(String kind, String pomPath) {
+    try {
+      File file = new File(pomPath).getCanonicalFile();
+      BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+      return kind + '\0' + file.getPath() + '\0' + attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) + '\0' + attributes.size();
+    }
+    catch (IOException e) {
+      // Leave missing or unreadable files to the uncached path and its error reporting
+      return null;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+
+/**
+ * The standard input and output of the goal in progress. They are those of the process, unless 
+ * redirected for the calling thread and the threads it starts, as the daemon does to serve each 
+ * request from its client's streams.
+ */
+public class StandardStreams {
+
+  private static final InheritableThreadLocal<InputStream> in = new InheritableThreadLocal<InputStream>();
+  private static final InheritableThreadLocal<PrintStream> out = new InheritableThreadLocal<PrintStream>();
+
+  protected static InputStream in() {
+    InputStream stream = in.get();
+    return stream != null ? stream : System.in;
+  }
+
+  protected static PrintStream out() {
+    PrintStream stream = out.get();
+    return stream != null ? stream : System.out;
+  }
+
+  /**
+   * Redirect the standard streams of this thread until {@link #reset()}.
+   */
+  protected static void redirect(InputStream input, PrintStream output) {
+    in.set(input);
+    out.set(output);
+  }
+
+  protected static void reset() {
+    in.remove();
+    out.remove();
+  }
+}
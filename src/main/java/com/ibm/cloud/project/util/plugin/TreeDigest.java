@@ -0,0 +1,289 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * A tree-hash digest: the file is split into {@link #CHUNK_SIZE} chunks, each chunk is hashed with 
+ * the leaf algorithm, and the chunk digests are combined pairwise into a single root digest. Chunks 
+ * are independent, so a large file is hashed in parallel, with one chunk per task.
+ * <p>Leaves are <code>H(0x00 || chunk)</code> and inner nodes <code>H(0x01 || left || right)</code>, 
+ * with an odd node carried up to the next level unchanged. An empty file has one, empty, chunk. The 
+ * name of a tree digest is <code>tree-</code> followed by the leaf algorithm, e.g. <code>tree-sha256</code>, 
+ * and it is not comparable with a plain digest of the same file.</p>
+ * <p>The chunk digests can be kept as a sidecar {@link Chunks} list, so that a mismatching file can 
+ * be reported by the byte ranges that changed.</p>
+ */
+public class TreeDigest implements DigestProvider {
+
+  static final String PREFIX = "tree-";
+  static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+  private static final byte LEAF = 0;
+  private static final byte NODE = 1;
+
+  private final DigestAlgorithm leaf;
+
+  private TreeDigest(DigestAlgorithm leaf) {
+    this.leaf = leaf;
+  }
+
+  private static final TreeDigest[] trees = new TreeDigest[DigestAlgorithm.values().length];
+  static {
+    for( DigestAlgorithm algorithm : DigestAlgorithm.values() )
+      trees[algorithm.ordinal()] = new TreeDigest(algorithm);
+  }
+
+  protected static TreeDigest of(DigestAlgorithm leaf) {
+    return trees[leaf.ordinal()];
+  }
+
+  protected DigestAlgorithm getLeafAlgorithm() {
+    return leaf;
+  }
+
+  @Override
+  public String getName() {
+    return PREFIX + leaf.getName();
+  }
+
+  /**
+   * A sequential hasher, for content that is streamed rather than read from a file. It produces the
+   * same digest as {@link #digest(File)}.
+   */
+  @Override
+  public Hasher newHasher() throws NoSuchAlgorithmException {
+    return new TreeHasher();
+  }
+
+  /**
+   * The chunk digests of a file, hashed in parallel on the current fork/join pool.
+   */
+  protected List<byte[]> chunkDigests(File file) throws IOException {
+
+    try( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) ) {
+      long size = channel.size();
+      int count = (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+      return IntStream.range(0, count).parallel()
+              .mapToObj(k -> {
+                try {
+                  Hasher hasher = leaf.newHasher();
+                  hasher.update(new byte[] { LEAF }, 0, 1);
+                  long position = (long) k * CHUNK_SIZE;
+                  DigestEngine.updateRange(hasher, channel, position, Math.min(CHUNK_SIZE, size - position));
+                  return hasher.digest();
+                }
+                catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+                catch (NoSuchAlgorithmException e) {
+                  throw new IllegalStateException(e);
+                }
+              })
+              .collect(Collectors.toList());
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  protected byte[] digest(File file) throws IOException, NoSuchAlgorithmException {
+    return root(chunkDigests(file));
+  }
+
+  /**
+   * Combine chunk digests into the root digest.
+   */
+  protected byte[] root(List<byte[]> chunks) throws NoSuchAlgorithmException {
+
+    List<byte[]> level = chunks;
+    while( level.size() > 1 ) {
+      List<byte[]> next = new ArrayList<byte[]>((level.size() + 1) / 2);
+      for( int k = 0; k + 1 < level.size(); k += 2 ) {
+        Hasher hasher = leaf.newHasher();
+        hasher.update(new byte[] { NODE }, 0, 1);
+        hasher.update(level.get(k), 0, level.get(k).length);
+        hasher.update(level.get(k + 1), 0, level.get(k + 1).length);
+        next.add(hasher.digest());
+      }
+      if( level.size() % 2 == 1 )
+        next.add(level.get(level.size() - 1));
+      level = next;
+    }
+    return level.get(0);
+  }
+
+  /**
+   * The chunk digests of a file, as kept in a sidecar: a header line with the tree digest name, 
+   * chunk size and file size, then one <code>offset&lt;TAB&gt;length&lt;TAB&gt;digest</code> line per chunk.
+   */
+  protected static class Chunks {
+
+    final String name;
+    final int chunkSize;
+    final long size;
+    final List<byte[]> digests;
+
+    Chunks(String name, int chunkSize, long size, List<byte[]> digests) {
+      this.name = name;
+      this.chunkSize = chunkSize;
+      this.size = size;
+      this.digests = digests;
+    }
+
+    protected void write(Writer writer) throws IOException {
+      writer.write(name + "\t" + chunkSize + "\t" + size + "\n");
+      for( int k = 0; k < digests.size(); ++k ) {
+        long offset = (long) k * chunkSize;
+        writer.write(offset + "\t" + Math.min(chunkSize, size - offset) + "\t" + DatatypeConverter.printHexBinary(digests.get(k)) + "\n");
+      }
+    }
+
+    protected static Chunks read(Reader reader) throws IOException {
+      BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+      String header = lines.readLine();
+      String[] fields = header != null ? header.trim().split("\t") : new String[0];
+      if( fields.length != 3 || ! fields[0].startsWith(PREFIX) )
+        throw new IOException("Not a chunk digest list: "+header);
+      try {
+        List<byte[]> digests = new ArrayList<byte[]>();
+        String line;
+        while( (line = lines.readLine()) != null ) {
+          line = line.trim();
+          if( line.isEmpty() )
+            continue;
+          digests.add(DatatypeConverter.parseHexBinary(line.substring(line.lastIndexOf('\t') + 1)));
+        }
+        return new Chunks(fields[0], Integer.parseInt(fields[1]), Long.parseLong(fields[2]), digests);
+      }
+      catch (IllegalArgumentException e) {
+        throw new IOException("Malformed chunk digest list", e);
+      }
+    }
+
+    /**
+     * The byte ranges of this file that differ from <code>reference</code>, as merged 
+     * <code>{start, end}</code> pairs with an exclusive end. A size change counts as a change
+     * of the trailing range.
+     */
+    protected List<long[]> changedRanges(Chunks reference) {
+
+      List<long[]> ranges = new ArrayList<long[]>();
+      int count = Math.max(digests.size(), reference.digests.size());
+      long end = Math.max(size, reference.size);
+      for( int k = 0; k < count; ++k ) {
+        boolean same = k < digests.size() && k < reference.digests.size() 
+                && Arrays.equals(digests.get(k), reference.digests.get(k));
+        if( same )
+          continue;
+        long start = (long) k * chunkSize;
+        long stop = Math.min(end, start + chunkSize);
+        long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+        if( last != null && last[1] == start )
+          last[1] = stop;
+        else
+          ranges.add(new long[] { start, stop });
+      }
+      return ranges;
+    }
+
+    protected static String format(List<long[]> ranges) {
+      StringBuilder text = new StringBuilder();
+      for( long[] range : ranges )
+        text.append(text.length() > 0 ? ", " : "").append(range[0]).append('-').append(range[1]);
+      return text.toString();
+    }
+  }
+
+  protected Chunks chunks(File file) throws IOException {
+    return new Chunks(getName(), CHUNK_SIZE, file.length(), chunkDigests(file));
+  }
+
+  private class TreeHasher implements Hasher {
+
+    private final List<byte[]> chunks = new ArrayList<byte[]>();
+    private Hasher current;
+    private long filled;
+
+    private void next() throws NoSuchAlgorithmException {
+      current = leaf.newHasher();
+      current.update(new byte[] { LEAF }, 0, 1);
+      filled = 0;
+    }
+
+    private void finishChunk() {
+      chunks.add(current.digest());
+      current = null;
+    }
+
+    @Override
+    public void update(byte[] input, int offset, int len) {
+      update(ByteBuffer.wrap(input, offset, len));
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+      try {
+        while( input.hasRemaining() ) {
+          if( current == null )
+            next();
+          int n = (int) Math.min(input.remaining(), CHUNK_SIZE - filled);
+          ByteBuffer slice = input.duplicate();
+          slice.limit(slice.position() + n);
+          current.update(slice);
+          input.position(input.position() + n);
+          filled += n;
+          if( filled == CHUNK_SIZE )
+            finishChunk();
+        }
+      }
+      catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public byte[] digest() {
+      try {
+        if( current != null || chunks.isEmpty() ) {
+          if( current == null )
+            next();
+          finishChunk();
+        }
+        return root(chunks);
+      }
+      catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
@@ -14,12 +14,39 @@
  */    
 package com.ibm.cloud.project.util.plugin;
 
+import static com.ibm.cloud.project.util.plugin.MojoUtil.PIPELINE;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.await;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.checksumProvider;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.configureHttpTransport;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.copyReference;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.downloadText;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.getDigest;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.isCompressedReference;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.isReferenceStored;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.logHttpTransport;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.moveReplacement;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.openDigestCache;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.releaseHttpCache;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.releaseReferenceStore;
 import static com.ibm.cloud.project.util.plugin.MojoUtil.replaceFile;
-import static com.ibm.cloud.project.util.plugin.MojoUtil.verifyFileIntegrity;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.replacementTarget;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.replacementTemp;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.saveDigestCache;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.supplyAsync;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.useHttpCache;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.useReferenceStore;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -34,9 +61,44 @@ import org.apache.maven.plugins.annotations.Parameter;
  * <p>Parameters:
  * <ul>
  * <li><b>file_path</b> A path on the local filesystem for the file to verify
- * <li><b>cksum_url</b> A URL for a file containing the MD5 digest for the file to verify
- * <li><b>ref_url</b> A URL for the reference copy of the file to verify (optional)
- * <li><b>replace_on_fail</b> Replace the local file with the reference copy if the cksum match fails. (optional, default=false)
+ * <li><b>cksum_url</b> A URL for a file containing the digest for the file to verify
+ * <li><b>algorithm</b> The digest algorithm, one of md5, sha1, sha256, sha512, xxh64 or crc32c (optional, 
+ * default=detected from the <code>name:</code> prefix or length of the digest at <code>cksum_url</code>)
+ * <li><b>ref_url</b> A URL for the reference copy of the file to verify. A reference ending in ".gz" is a gzip-compressed 
+ * copy, and is decompressed as it is fetched, unless the file to verify is itself a ".gz" file (optional)
+ * <li><b>chunks_url</b> With a tree digest, a URL for the reference chunk digests written by <code>gen-cksum</code> 
+ * with <code>chunks_path</code>. A mismatch is then reported with the byte ranges that changed (optional)
+ * <li><b>replace_on_fail</b> Replace the local file with the reference copy if the cksum match fails. The reference copy 
+ * must itself match the cksum, and replaces the local file atomically. (optional, default=false)
+ * <li><b>prefetch</b> With <code>ref_url</code>, start fetching the reference copy while the file is verified, so that 
+ * a mismatch does not wait for a further download. The fetch is cancelled if the file matches. Not used with 
+ * <code>delta_repair</code> (optional, default=true)
+ * <li><b>delta_repair</b> With <code>replace_on_fail</code>, fetch only the blocks of the reference copy that differ 
+ * from the local file, using its block signature and HTTP Range requests. Falls back to a full replacement if the 
+ * signature is unavailable, the server does not support ranges, or most of the file changed, and not used with a 
+ * compressed reference. (optional, default=false)
+ * <li><b>signature_url</b> A URL for the block signature of the reference copy, written by <code>gen-cksum</code> with 
+ * <code>signature_path</code> (optional, default=<code>ref_url</code> + ".blocksig")
+ * <li><b>watch</b> After verifying, keep watching the file and verify it again whenever it changes. Violations are 
+ * reported, and with <code>replace_on_fail</code> restored from a local copy of the verified file (optional, default=false)
+ * <li><b>watch_debounce</b> Milliseconds without further changes before a changed file is verified (optional, default=100)
+ * <li><b>watch_timeout</b> Seconds to watch for, or 0 to watch until stopped (optional, default=0)
+ * <li><b>digest_cache</b> Reuse digests of unchanged files from an on-disk cache (optional, default=false)
+ * <li><b>digest_cache_dir</b> The digest cache directory (optional, default=~/.m2/project-util/digest-cache)
+ * <li><b>digest_cache_size</b> The maximum number of cached digests (optional, default=10000)
+ * <li><b>http_cache</b> Cache http(s) responses on disk, revalidating with ETag and Last-Modified (optional, default=false)
+ * <li><b>http_cache_dir</b> The HTTP cache directory (optional, default=~/.m2/project-util/http-cache)
+ * <li><b>http_cache_size</b> The maximum HTTP cache size in MiB (optional, default=256)
+ * <li><b>reference_store</b> Keep verified reference files in a local content-addressable store shared by all workspaces, 
+ * and restore files from it instead of downloading them again (optional, default=false)
+ * <li><b>reference_store_dir</b> The reference store directory (optional, default=~/.m2/project-util/reference-store)
+ * <li><b>reference_store_size</b> The maximum reference store size in MiB (optional, default=1024)
+ * <li><b>reference_store_links</b> Restore files from the store as read-only hard links where possible, rather than 
+ * as copies (optional, default=true)
+ * <li><b>connect_timeout</b> The HTTP connect timeout in milliseconds (optional, default=10000)
+ * <li><b>read_timeout</b> The HTTP read timeout in milliseconds (optional, default=30000)
+ * <li><b>max_connections</b> The maximum number of concurrent connections per host (optional, default=8)
+ * <li><b>metrics_file</b> A file to write a JSON summary of timings, bytes and cache hits to (optional)
  * </ul>
  */
 @Mojo(name = "verify-file", requiresProject = false)
@@ -48,42 +110,264 @@ public class VerifyFileIntegrityMojo extends AbstractMojo {
   @Parameter(property = "cksum_url")
   private String cksumURL;
 
+  @Parameter(property = "algorithm", required = false)
+  private String algorithm;
+
   @Parameter(property = "ref_url", required = false)
   private String refURL;
 
+  @Parameter(property = "chunks_url", required = false)
+  private String chunksURL;
+
+  @Parameter(property = "prefetch", required = false, defaultValue = "true")
+  private boolean prefetch = true;
+
+  @Parameter(property = "delta_repair", required = false, defaultValue = "false")
+  private boolean deltaRepair;
+
+  @Parameter(property = "signature_url", required = false)
+  private String signatureURL;
+
+  @Parameter(property = "watch", required = false, defaultValue = "false")
+  private boolean watch;
+
+  @Parameter(property = "watch_debounce")
+  private long watchDebounce;
+
+  @Parameter(property = "watch_timeout")
+  private long watchTimeout;
+
   @Parameter(property = "replace_on_fail", required = false, defaultValue = "false")
   private boolean replaceOnFail;
 
+  @Parameter(property = "digest_cache", defaultValue = "false")
+  private boolean digestCache;
+
+  @Parameter(property = "digest_cache_dir")
+  private String digestCacheDir;
+
+  @Parameter(property = "digest_cache_size")
+  private int digestCacheSize;
+
+  @Parameter(property = "http_cache", defaultValue = "false")
+  private boolean httpCache;
+
+  @Parameter(property = "http_cache_dir")
+  private String httpCacheDir;
+
+  @Parameter(property = "http_cache_size")
+  private int httpCacheSize;
+
+  @Parameter(property = "reference_store", defaultValue = "false")
+  private boolean referenceStore;
+
+  @Parameter(property = "reference_store_dir")
+  private String referenceStoreDir;
+
+  @Parameter(property = "reference_store_size")
+  private int referenceStoreSize;
+
+  @Parameter(property = "reference_store_links", defaultValue = "true")
+  private boolean referenceStoreLinks = true;
+
+  @Parameter(property = "connect_timeout")
+  private int connectTimeout;
+
+  @Parameter(property = "read_timeout")
+  private int readTimeout;
+
+  @Parameter(property = "max_connections")
+  private int maxConnections;
+
+  @Parameter(property = "metrics_file")
+  private String metricsFile;
+
 
   public void execute() throws MojoExecutionException {
 
+    ExecutionMetrics metrics = ExecutionMetrics.start("verify-file");
+    try {
+      verifyFile();
+      metrics.succeeded();
+    }
+    finally {
+      metrics.finish(metricsFile, getLog());
+    }
+  }
+
+  private void verifyFile() throws MojoExecutionException {
+
     boolean replace = replaceOnFail && refURL != null;
+    DigestCache cache = openDigestCache(digestCache, digestCacheDir, digestCacheSize, getLog());
+    configureHttpTransport(connectTimeout, readTimeout, maxConnections);
+    useHttpCache(httpCache, httpCacheDir, httpCacheSize, getLog());
+    useReferenceStore(referenceStore, referenceStoreDir, referenceStoreSize, referenceStoreLinks, getLog());
+    Prefetch reference = null;
     try {
-      // Verify cksum of subject file
-      if( ! verifyFileIntegrity(new File(path), new URL(cksumURL)) ) {
+      // Fetch the cksum, hash the subject file and prefetch the reference concurrently. The file is 
+      // hashed as soon as the algorithm is known, which without an algorithm is once the cksum arrives.
+      File file = new File(path);
+      DigestProvider requested = algorithm != null ? DigestAlgorithm.forName(algorithm) : null;
+      CompletableFuture<String> cksumStage = supplyAsync(() -> downloadText(new URL(cksumURL)).trim(), PIPELINE);
+      CompletableFuture<String> digestStage = requested != null 
+          ? supplyAsync(() -> getDigest(file, requested, cache), PIPELINE) 
+          : cksumStage.thenCompose(c -> supplyAsync(() -> getDigest(file, checksumProvider(c, null), cache), PIPELINE));
+      boolean delta = replace && deltaRepair && ! isCompressedReference(new URL(refURL), file);
+      boolean speculate = refURL != null && prefetch && ! delta;
+      if( speculate && ! referenceStore )
+        reference = Prefetch.start(new URL(refURL), file, PIPELINE);
+
+      String cksum = await(cksumStage);
+      DigestProvider provider = checksumProvider(cksum, requested);
+      // With a reference store, the reference is only fetched if the store does not have it
+      if( speculate && referenceStore && ! isReferenceStored(provider, DigestAlgorithm.digestValue(cksum)) )
+        reference = Prefetch.start(new URL(refURL), file, PIPELINE);
+      if( ! await(digestStage).equalsIgnoreCase(DigestAlgorithm.digestValue(cksum)) ) {
         
         getLog().warn(MessageFormat.format(Messages.get(Messages.CKSUM_MISMATCH), path));  
+        if( chunksURL != null && provider instanceof TreeDigest )
+          reportChangedRanges((TreeDigest) provider);
         
         if( ! replace ) {
           if( refURL != null ) {
             // Save a copy of the true reference 
             String[] tokens = path.split("\\.(?=[^\\.]+$)");
             String path2 = tokens[0] + "-reference." + tokens[1]; 
-            replaceFile(new URL(refURL), new File(path2));
+            if( reference != null )
+              reference.install(new File(path2), null, null);
+            else
+              copyReference(new URL(refURL), new File(path2), provider, DigestAlgorithm.digestValue(cksum));
+            reference = null;
             getLog().info(String.format("Expected file content: %s", path2));              
           }
           throw new MojoFailureException(MessageFormat.format(Messages.get(Messages.CKSUM_MISMATCH), path));
         }        
         
-        // Replace subject file with reference of record
-        replaceFile(new URL(refURL), new File(path));
+        // Replace subject file with reference of record, checked against the cksum. A stored 
+        // reference is restored by replaceFile, ahead of a delta repair.
+        String digest = DigestAlgorithm.digestValue(cksum);
+        if( reference != null )
+          reference.install(file, provider, digest);
+        else if( ! (delta && ! isReferenceStored(provider, digest) && repairFile(provider, digest)) )
+          replaceFile(new URL(refURL), file, provider, digest);
+        reference = null;
         getLog().warn(MessageFormat.format(Messages.get(Messages.REPLACED_PROTECTED_FILE), path));  
 
       }
+      else if( reference != null ) {
+        getLog().debug("Cancelled reference prefetch: "+refURL);
+      }
+
+      if( watch )
+        watchFile(provider, DigestAlgorithm.digestValue(cksum));
     }
     catch (Exception e) {
       throw new MojoExecutionException("Verify File Integrity", e);
     }
+    finally {
+      if( reference != null )
+        reference.cancel();
+      saveDigestCache(cache, getLog());
+      releaseHttpCache(getLog());
+      releaseReferenceStore(getLog());
+      logHttpTransport(getLog());
+    }
     
   }
+
+  /**
+   * Repair the subject file from the differing blocks of the reference, returning false if a full 
+   * replacement is needed instead.
+   */
+  private boolean repairFile(DigestProvider provider, String expectedDigest) throws IOException, NoSuchAlgorithmException {
+
+    URL sourceURL = new URL(refURL);
+    BlockSignature signature;
+    try {
+      signature = DeltaRepair.fetchSignature(signatureURL != null ? new URL(signatureURL) : DeltaRepair.signatureURL(sourceURL));
+    }
+    catch (IOException e) {
+      getLog().warn("Block signature unavailable, replacing the whole file: "+e);
+      return false;
+    }
+
+    DeltaRepair.Result result = DeltaRepair.repair(sourceURL, signature, new File(path), provider, expectedDigest);
+    if( result == null ) {
+      getLog().info("Delta repair not applicable, replacing the whole file: "+path);
+      return false;
+    }
+    getLog().info(MessageFormat.format(Messages.get(Messages.DELTA_REPAIRED), path, result.fetched, result.size, result.ranges));
+    return true;
+  }
+
+  /**
+   * Verify the file again on every change, until the timeout or an interrupt. The expected digest is kept, so 
+   * only the changed file is hashed. With replace_on_fail, violations are restored from a snapshot of the 
+   * verified file, without a fetch. Without it, the goal fails if the file is still in violation when 
+   * the watch ends.
+   */
+  private void watchFile(DigestProvider provider, String expectedDigest) throws IOException, NoSuchAlgorithmException, MojoFailureException {
+
+    Path target = replacementTarget(new File(path));
+    Path snapshot = null;
+    boolean violated = false;
+    try( FileWatcher watcher = new FileWatcher(target, watchDebounce) ) {
+      if( replaceOnFail ) {
+        snapshot = Files.createTempFile("project-util-watch", ".snapshot");
+        Files.copy(target, snapshot, StandardCopyOption.REPLACE_EXISTING);
+      }
+      getLog().info(MessageFormat.format(Messages.get(Messages.WATCHING_FILE), path));
+
+      long deadline = watchTimeout > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(watchTimeout) : Long.MAX_VALUE;
+      while( true ) {
+        long remaining = deadline == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if( remaining <= 0 || ! watcher.awaitChange(remaining) )
+          break;
+
+        long detected = System.nanoTime();
+        if( Files.isRegularFile(target) && getDigest(target.toFile(), provider).equalsIgnoreCase(expectedDigest) ) {
+          if( violated )
+            getLog().info(MessageFormat.format(Messages.get(Messages.VERIFIED_PROTECTED_FILE), path));
+          violated = false;
+          continue;
+        }
+
+        getLog().warn(MessageFormat.format(Messages.get(Messages.CKSUM_MISMATCH), path));
+        violated = true;
+        if( snapshot != null ) {
+          Path temp = replacementTemp(target);
+          try {
+            Files.copy(snapshot, temp);
+            moveReplacement(temp, target);
+          }
+          finally {
+            Files.deleteIfExists(temp);
+          }
+          violated = false;
+          getLog().warn(MessageFormat.format(Messages.get(Messages.REPLACED_PROTECTED_FILE), path));
+          getLog().debug(String.format("Restored %s in %.1f ms", path, (System.nanoTime() - detected) / 1e6));
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      if( snapshot != null )
+        Files.deleteIfExists(snapshot);
+    }
+
+    if( violated )
+      throw new MojoFailureException(MessageFormat.format(Messages.get(Messages.CKSUM_MISMATCH), path));
+  }
+
+  private void reportChangedRanges(TreeDigest tree) throws IOException {
+    TreeDigest.Chunks reference = TreeDigest.Chunks.read(new StringReader(downloadText(new URL(chunksURL))));
+    if( ! reference.name.equals(tree.getName()) || reference.chunkSize != TreeDigest.CHUNK_SIZE ) {
+      getLog().warn("Chunk digests do not match the checksum algorithm: "+chunksURL);
+      return;
+    }
+    TreeDigest.Chunks local = tree.chunks(new File(path));
+    getLog().warn(MessageFormat.format(Messages.get(Messages.CHANGED_RANGES), path, TreeDigest.Chunks.format(local.changedRanges(reference))));
+  }
 }
\ No newline at end of file
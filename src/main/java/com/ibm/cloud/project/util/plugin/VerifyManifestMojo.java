@@ -0,0 +1,230 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static com.ibm.cloud.project.util.plugin.MojoUtil.configureHttpTransport;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.downloadText;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.logHttpTransport;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.openDigestCache;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.releaseHttpCache;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.releaseReferenceStore;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.replaceFile;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.saveDigestCache;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.toURL;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.useHttpCache;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.useReferenceStore;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * <p>Verify a tree of local files against a checksum manifest, as written by <code>gen-cksum</code> with
+ * <code>dir_path</code>. All entries are verified in parallel, and every mismatch is reported together.
+ * <p>Parameters:
+ * <ul>
+ * <li><b>manifest_url</b> A URL, or local path, for the checksum manifest
+ * <li><b>base_dir</b> The local directory that manifest paths are relative to (optional, default=current directory)
+ * <li><b>ref_base_url</b> A base URL for reference copies of the manifest files (optional)
+ * <li><b>replace_on_fail</b> Replace each missing or mismatched file with its reference copy (optional, default=false)
+ * <li><b>threads</b> The number of verification threads (optional, default=available processors)
+ * <li><b>digest_cache</b> Reuse digests of unchanged files from an on-disk cache (optional, default=false)
+ * <li><b>digest_cache_dir</b> The digest cache directory (optional, default=~/.m2/project-util/digest-cache)
+ * <li><b>digest_cache_size</b> The maximum number of cached digests (optional, default=10000)
+ * <li><b>http_cache</b> Cache http(s) responses on disk, revalidating with ETag and Last-Modified (optional, default=false)
+ * <li><b>http_cache_dir</b> The HTTP cache directory (optional, default=~/.m2/project-util/http-cache)
+ * <li><b>http_cache_size</b> The maximum HTTP cache size in MiB (optional, default=256)
+ * <li><b>reference_store</b> Keep verified reference files in a local content-addressable store shared by all workspaces, 
+ * and restore files from it instead of downloading them again (optional, default=false)
+ * <li><b>reference_store_dir</b> The reference store directory (optional, default=~/.m2/project-util/reference-store)
+ * <li><b>reference_store_size</b> The maximum reference store size in MiB (optional, default=1024)
+ * <li><b>reference_store_links</b> Restore files from the store as read-only hard links where possible, rather than 
+ * as copies (optional, default=true)
+ * <li><b>connect_timeout</b> The HTTP connect timeout in milliseconds (optional, default=10000)
+ * <li><b>read_timeout</b> The HTTP read timeout in milliseconds (optional, default=30000)
+ * <li><b>max_connections</b> The maximum number of concurrent connections per host (optional, default=8)
+ * <li><b>metrics_file</b> A file to write a JSON summary of timings, bytes and cache hits to (optional)
+ * </ul>
+ * <p>Example:
+ * <br><code>mvn -q com.ibm.cloud:project-util-plugin:verify-manifest -Dmanifest_url=https://example.com/config.cksum -Dbase_dir=config</code></p>
+ */
+@Mojo(name = "verify-manifest", requiresProject = false)
+public class VerifyManifestMojo extends AbstractMojo {
+
+  @Parameter(property = "manifest_url", required = true)
+  private String manifestURL;
+
+  @Parameter(property = "base_dir", defaultValue = ".")
+  private String baseDir;
+
+  @Parameter(property = "ref_base_url", required = false)
+  private String refBaseURL;
+
+  @Parameter(property = "replace_on_fail", required = false, defaultValue = "false")
+  private boolean replaceOnFail;
+
+  @Parameter(property = "threads")
+  private int threads;
+
+  @Parameter(property = "digest_cache", defaultValue = "false")
+  private boolean digestCache;
+
+  @Parameter(property = "digest_cache_dir")
+  private String digestCacheDir;
+
+  @Parameter(property = "digest_cache_size")
+  private int digestCacheSize;
+
+  @Parameter(property = "http_cache", defaultValue = "false")
+  private boolean httpCache;
+
+  @Parameter(property = "http_cache_dir")
+  private String httpCacheDir;
+
+  @Parameter(property = "http_cache_size")
+  private int httpCacheSize;
+
+  @Parameter(property = "reference_store", defaultValue = "false")
+  private boolean referenceStore;
+
+  @Parameter(property = "reference_store_dir")
+  private String referenceStoreDir;
+
+  @Parameter(property = "reference_store_size")
+  private int referenceStoreSize;
+
+  @Parameter(property = "reference_store_links", defaultValue = "true")
+  private boolean referenceStoreLinks = true;
+
+  @Parameter(property = "connect_timeout")
+  private int connectTimeout;
+
+  @Parameter(property = "read_timeout")
+  private int readTimeout;
+
+  @Parameter(property = "max_connections")
+  private int maxConnections;
+
+  @Parameter(property = "metrics_file")
+  private String metricsFile;
+
+
+  public void execute() throws MojoExecutionException, MojoFailureException {
+
+    ExecutionMetrics metrics = ExecutionMetrics.start("verify-manifest");
+    configureHttpTransport(connectTimeout, readTimeout, maxConnections);
+    useHttpCache(httpCache, httpCacheDir, httpCacheSize, getLog());
+    useReferenceStore(referenceStore, referenceStoreDir, referenceStoreSize, referenceStoreLinks, getLog());
+    try {
+      verifyManifest();
+      metrics.succeeded();
+    }
+    finally {
+      releaseHttpCache(getLog());
+      releaseReferenceStore(getLog());
+      logHttpTransport(getLog());
+      metrics.finish(metricsFile, getLog());
+    }
+  }
+
+  private void verifyManifest() throws MojoExecutionException, MojoFailureException {
+
+    Path root = Paths.get(baseDir);
+    int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+    List<ChecksumManifest.Entry> entries;
+    List<ChecksumManifest.Entry> mismatches;
+    DigestCache cache = openDigestCache(digestCache, digestCacheDir, digestCacheSize, getLog());
+    try {
+      entries = ChecksumManifest.read(new StringReader(downloadText(toURL(manifestURL))));
+      mismatches = ChecksumManifest.verify(root, entries, cache, parallelism);
+    }
+    catch (Exception e) {
+      throw new MojoExecutionException("Verify Manifest", e);
+    }
+    finally {
+      saveDigestCache(cache, getLog());
+    }
+
+    if( mismatches.isEmpty() ) {
+      getLog().info(MessageFormat.format(Messages.get(Messages.VERIFIED_MANIFEST), entries.size(), manifestURL));
+      return;
+    }
+
+    StringBuilder report = new StringBuilder();
+    for( ChecksumManifest.Entry entry : mismatches ) {
+      getLog().warn(MessageFormat.format(Messages.get(Messages.CKSUM_MISMATCH), entry.path));
+      report.append("\n  ").append(entry.path);
+    }
+
+    if( ! (replaceOnFail && refBaseURL != null) )
+      throw new MojoFailureException(MessageFormat.format(Messages.get(Messages.MANIFEST_MISMATCH), mismatches.size(), entries.size(), manifestURL, report));
+
+    // Replace mismatched files with references of record
+    try {
+      restore(root, mismatches, parallelism);
+    }
+    catch (Exception e) {
+      throw new MojoExecutionException("Verify Manifest", e);
+    }
+  }
+
+  private void restore(Path root, List<ChecksumManifest.Entry> mismatches, int parallelism) throws Exception {
+
+    URI refBase = toURL(refBaseURL.endsWith("/") ? refBaseURL : refBaseURL + "/").toURI();
+
+    List<Exception> failures = new ArrayList<Exception>();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.submit(() -> mismatches.parallelStream().forEach(entry -> {
+        try {
+          Path file = ChecksumManifest.resolve(root, entry);
+          URL refURL = refBase.resolve(new URI(null, null, entry.path, null)).toURL();
+          Files.createDirectories(file.getParent());
+          replaceFile(refURL, file.toFile(), DigestAlgorithm.detect(entry.digest), DigestAlgorithm.digestValue(entry.digest));
+          getLog().warn(MessageFormat.format(Messages.get(Messages.REPLACED_PROTECTED_FILE), file));
+        }
+        catch (Exception e) {
+          synchronized( failures ) {
+            failures.add(e);
+          }
+        }
+      })).get();
+    }
+    finally {
+      pool.shutdownNow();
+    }
+
+    if( ! failures.isEmpty() ) {
+      Exception failure = failures.get(0);
+      for( Exception e : failures.subList(1, failures.size()) )
+        failure.addSuppressed(e);
+      throw failure;
+    }
+  }
+}
@@ -0,0 +1,269 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static com.ibm.cloud.project.util.plugin.MojoUtil.verifyFileIntegrity;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * <p>Verify the files of the local Maven repository against their <code>.sha1</code>, or else 
+ * <code>.md5</code>, checksum sidecars. Files are verified in parallel, and a checkpoint of verified
+ * files is persisted, so that later runs only verify new or changed files.
+ * <p>Parameters:
+ * <ul>
+ * <li><b>quarantine_dir</b> Move each mismatched file and its sidecars here, under its repository path, instead of failing (optional)
+ * <li><b>threads</b> The number of verification threads (optional, default=available processors)
+ * <li><b>checkpoint_dir</b> The checkpoint directory (optional, default=~/.m2/project-util/repo-checkpoint)
+ * <li><b>full</b> Ignore the checkpoint and verify every file (optional, default=false)
+ * <li><b>metrics_file</b> A file to write a JSON summary of timings, bytes and cache hits to (optional)
+ * </ul>
+ * <p>Example:
+ * <br><code>mvn -q com.ibm.cloud:project-util-plugin:verify-repo -Dquarantine_dir=/tmp/m2-quarantine</code></p>
+ */
+@Mojo(name = "verify-repo", requiresProject = false)
+public class VerifyRepoMojo extends AbstractMojo {
+
+  static final String[] SIDECARS = { ".sha1", ".md5" };
+
+  // Save the checkpoint after this many verified files, so that an interrupted run can resume
+  private static final int CHECKPOINT_INTERVAL = 1000;
+
+  @Parameter(property = "quarantine_dir")
+  private String quarantineDir;
+
+  @Parameter(property = "threads")
+  private int threads;
+
+  @Parameter(property = "checkpoint_dir")
+  private String checkpointDir;
+
+  @Parameter(property = "full", defaultValue = "false")
+  private boolean full;
+
+  @Parameter(property = "metrics_file")
+  private String metricsFile;
+
+  @Parameter( defaultValue = "${session}", required = true, readonly = true )
+  private MavenSession session;
+
+
+  protected static class Result {
+    int verified;
+    int unchanged;
+    final List<Path> mismatches = Collections.synchronizedList(new ArrayList<Path>());
+  }
+
+  public void execute() throws MojoExecutionException, MojoFailureException {
+
+    ExecutionMetrics metrics = ExecutionMetrics.start("verify-repo");
+    try {
+      verifyRepo();
+      metrics.succeeded();
+    }
+    finally {
+      metrics.finish(metricsFile, getLog());
+    }
+  }
+
+  private void verifyRepo() throws MojoExecutionException, MojoFailureException {
+
+    Path repository = Paths.get(session.getLocalRepository().getBasedir());
+    if( ! Files.isDirectory(repository) )
+      throw new MojoExecutionException(MessageFormat.format(Messages.get(Messages.MISSING_REPO), repository));
+
+    RepositoryCheckpoint checkpoint;
+    Result result;
+    try {
+      checkpoint = RepositoryCheckpoint.open(checkpointDir, repository);
+      if( full )
+        checkpoint.clear();
+      result = verifyRepository(repository, checkpoint, threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+    catch (IOException e) {
+      throw new MojoExecutionException("Verify Repository", e);
+    }
+
+    StringBuilder report = new StringBuilder();
+    Collections.sort(result.mismatches);
+    for( Path file : result.mismatches ) {
+      getLog().warn(MessageFormat.format(Messages.get(Messages.CKSUM_MISMATCH), file));
+      report.append("\n  ").append(repository.relativize(file));
+    }
+
+    if( ! result.mismatches.isEmpty() && quarantineDir != null ) {
+      try {
+        for( Path file : result.mismatches ) {
+          quarantine(repository, file, Paths.get(quarantineDir));
+          getLog().warn(MessageFormat.format(Messages.get(Messages.QUARANTINED_FILE), file));
+        }
+      }
+      catch (IOException e) {
+        throw new MojoExecutionException("Verify Repository", e);
+      }
+    }
+
+    try {
+      checkpoint.save();
+    }
+    catch (IOException e) {
+      getLog().warn("Repository checkpoint not saved: "+e);
+    }
+
+    int total = result.verified + result.unchanged + result.mismatches.size();
+    ExecutionMetrics.current().cache("checkpoint", result.unchanged, result.verified + result.mismatches.size());
+    if( ! result.mismatches.isEmpty() && quarantineDir == null )
+      throw new MojoFailureException(MessageFormat.format(Messages.get(Messages.REPO_MISMATCH), result.mismatches.size(), total, repository, report));
+
+    getLog().info(MessageFormat.format(Messages.get(Messages.VERIFIED_REPO), total, repository, result.unchanged));
+  }
+
+  /**
+   * Verify every file with a sidecar that is not already recorded in the checkpoint, on a fork-join
+   * pool of <code>threads</code> workers. Unreadable files count as mismatches, and entries for files 
+   * no longer in the repository are dropped from the checkpoint.
+   */
+  protected static Result verifyRepository(Path repository, RepositoryCheckpoint checkpoint, int threads) throws IOException {
+
+    List<Path> files = listVerifiable(repository);
+    checkpoint.retain(files);
+    Result result = new Result();
+    AtomicInteger verified = new AtomicInteger();
+    AtomicInteger unchanged = new AtomicInteger();
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      pool.submit(() -> files.parallelStream().forEach(file -> {
+        Path sidecar = sidecar(file);
+        try {
+          if( checkpoint.isVerified(file, sidecar) ) {
+            unchanged.incrementAndGet();
+            return;
+          }
+
+          long verifyStart = System.currentTimeMillis();
+          String stamp = RepositoryCheckpoint.stamp(file, sidecar);
+          if( verify(file, sidecar) ) {
+            checkpoint.verified(file, sidecar, stamp, verifyStart);
+            if( verified.incrementAndGet() % CHECKPOINT_INTERVAL == 0 )
+              checkpoint.save();
+          }
+          else {
+            checkpoint.forget(file);
+            result.mismatches.add(file);
+          }
+        }
+        catch (Exception e) {
+          checkpoint.forget(file);
+          result.mismatches.add(file);
+        }
+      })).get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted verifying repository: "+repository, e);
+    }
+    catch (ExecutionException e) {
+      throw new IOException("Failed verifying repository: "+repository, e.getCause());
+    }
+    finally {
+      pool.shutdownNow();
+    }
+
+    result.verified = verified.get();
+    result.unchanged = unchanged.get();
+    return result;
+  }
+
+  /**
+   * The files of a repository that have a checksum sidecar, excluding the sidecars themselves.
+   */
+  protected static List<Path> listVerifiable(Path repository) throws IOException {
+    try( Stream<Path> stream = Files.walk(repository) ) {
+      return stream
+              .filter(Files::isRegularFile)
+              .filter(p -> ! isSidecar(p) && sidecar(p) != null)
+              .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * The preferred sidecar of a file, or null if it has none.
+   */
+  protected static Path sidecar(Path file) {
+    for( String extension : SIDECARS ) {
+      Path sidecar = file.resolveSibling(file.getFileName() + extension);
+      if( Files.isRegularFile(sidecar) )
+        return sidecar;
+    }
+    return null;
+  }
+
+  private static boolean isSidecar(Path file) {
+    String name = file.getFileName().toString();
+    for( String extension : SIDECARS )
+      if( name.endsWith(extension) )
+        return true;
+    return false;
+  }
+
+  private static boolean verify(Path file, Path sidecar) throws Exception {
+
+    // Sidecars hold the hex digest, sometimes followed by the file name
+    String content = new String(Files.readAllBytes(sidecar), StandardCharsets.UTF_8).trim();
+    String[] fields = content.split("\\s+", 2);
+    if( fields[0].isEmpty() )
+      return false;
+
+    DigestAlgorithm algorithm = sidecar.getFileName().toString().endsWith(".sha1") ? DigestAlgorithm.SHA1 : DigestAlgorithm.MD5;
+    return verifyFileIntegrity(file.toFile(), fields[0], algorithm, null);
+  }
+
+  /**
+   * Move a file and its sidecars under <code>quarantine</code>, at the same relative path as in the repository.
+   */
+  protected static void quarantine(Path repository, Path file, Path quarantine) throws IOException {
+
+    Path target = quarantine.resolve(repository.relativize(file));
+    Files.createDirectories(target.getParent());
+    Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+    for( String extension : SIDECARS ) {
+      Path sidecar = file.resolveSibling(file.getFileName() + extension);
+      if( Files.exists(sidecar) )
+        Files.move(sidecar, target.resolveSibling(target.getFileName() + extension), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
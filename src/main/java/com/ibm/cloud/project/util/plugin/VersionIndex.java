@@ -0,0 +1,276 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+
+/**
+ * A sorted index of the versions of one groupId:artifactId installed in a local Maven repository.
+ * <p>The index is persisted, one file per repository and GA, together with a stamp of the modification 
+ * times of the GA directory, its <code>maven-metadata-local.xml</code> and each version directory. While 
+ * none has changed the persisted index is used as is, so that a directory that gains or loses its POM
+ * is noticed. Otherwise it is refreshed: version directories listed in the metadata are kept without 
+ * looking inside them, and the others are indexed only if they hold a POM.</p>
+ * <p>Versions are ordered and matched with OSGi semantics, as by {@link MojoUtil#verifyVersion}, so 
+ * versions that are not valid OSGi versions are never indexed.</p>
+ */
+public class VersionIndex {
+
+  static final String DEFAULT_DIR = System.getProperty("user.home") + "/.m2/project-util/version-index";
+
+  private static final String SUFFIX = ".idx";
+  private static final String METADATA = "maven-metadata-local.xml";
+
+  // Sorted ascending, with each version's directory name at the same position
+  private final List<Version> versions;
+  private final List<String> names;
+
+  private VersionIndex(List<Version> versions, List<String> names) {
+    this.versions = versions;
+    this.names = names;
+  }
+
+  /**
+   * Load, refreshing as necessary, the index of a GA in a local repository.
+   */
+  protected static VersionIndex load(String indexDir, Path repository, String groupId, String artifactId) throws IOException {
+
+    Path gaDir = repository.resolve(groupId.replace('.', '/')).resolve(artifactId);
+    Path indexFile = Paths.get(indexDir != null ? indexDir : DEFAULT_DIR).resolve(key(repository, groupId, artifactId) + SUFFIX);
+
+    if( ! Files.isDirectory(gaDir) )
+      return new VersionIndex(Collections.<Version>emptyList(), Collections.<String>emptyList());
+
+    List<Path> versionDirs = new ArrayList<Path>();
+    try( DirectoryStream<Path> stream = Files.newDirectoryStream(gaDir, Files::isDirectory) ) {
+      for( Path dir : stream )
+        versionDirs.add(dir);
+    }
+    String stamp = stamp(gaDir, versionDirs);
+
+    List<String> indexed = new ArrayList<String>();
+    String indexedStamp = read(indexFile, indexed);
+    if( ! stamp.equals(indexedStamp) ) {
+      indexed = refresh(gaDir, versionDirs, artifactId);
+      write(indexFile, stamp, indexed);
+    }
+
+    return build(indexed);
+  }
+
+  /**
+   * The highest indexed version within the range, or null.
+   */
+  protected String highest(String range) {
+
+    VersionRange versionRange = VersionRange.valueOf(range);
+
+    // Position of the last version at or below the right endpoint
+    int k = versions.size() - 1;
+    if( versionRange.getRight() != null ) {
+      Version right = versionRange.getRight();
+      boolean closed = versionRange.getRightType() == VersionRange.RIGHT_CLOSED;
+      int low = 0;
+      int high = versions.size();
+      while( low < high ) {
+        int mid = (low + high) >>> 1;
+        int c = versions.get(mid).compareTo(right);
+        if( c < 0 || (c == 0 && closed) )
+          low = mid + 1;
+        else
+          high = mid;
+      }
+      k = low - 1;
+    }
+
+    // Versions in range are contiguous, so either this one is in range or none is
+    if( k >= 0 && versionRange.includes(versions.get(k)) )
+      return names.get(k);
+    return null;
+  }
+
+  protected List<String> getVersions() {
+    return Collections.unmodifiableList(names);
+  }
+
+  private static List<String> refresh(Path gaDir, List<Path> versionDirs, String artifactId) throws IOException {
+
+    Set<String> known = new HashSet<String>(metadataVersions(gaDir.resolve(METADATA)));
+
+    List<String> current = new ArrayList<String>();
+    for( Path dir : versionDirs ) {
+      String name = dir.getFileName().toString();
+      if( known.contains(name) || Files.isRegularFile(dir.resolve(artifactId + "-" + name + ".pom")) )
+        current.add(name);
+    }
+    return current;
+  }
+
+  /**
+   * A digest of the modification times of the GA directory, its metadata and each version directory.
+   */
+  private static String stamp(Path gaDir, List<Path> versionDirs) throws IOException {
+
+    StringBuilder times = new StringBuilder();
+    times.append(modified(gaDir)).append(' ').append(modified(gaDir.resolve(METADATA))).append('\n');
+    List<Path> sorted = new ArrayList<Path>(versionDirs);
+    Collections.sort(sorted);
+    for( Path dir : sorted )
+      times.append(dir.getFileName()).append(' ').append(modified(dir)).append('\n');
+
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(times.toString().getBytes(StandardCharsets.UTF_8));
+      return DatatypeConverter.printHexBinary(digest).toLowerCase(Locale.ROOT);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static List<String> metadataVersions(Path metadata) throws IOException {
+    try( InputStream in = Files.newInputStream(metadata) ) {
+      Metadata m = new MetadataXpp3Reader().read(in, false);
+      if( m.getVersioning() != null )
+        return m.getVersioning().getVersions();
+    }
+    catch (NoSuchFileException e) {
+      // no local installs recorded
+    }
+    catch (XmlPullParserException e) {
+      // unreadable metadata, fall back to the directory layout
+    }
+    return Collections.emptyList();
+  }
+
+  private static VersionIndex build(List<String> names) {
+
+    List<Version> versions = new ArrayList<Version>(names.size());
+    List<String> valid = new ArrayList<String>(names.size());
+    for( String name : names ) {
+      try {
+        versions.add(Version.valueOf(name));
+        valid.add(name);
+      }
+      catch (IllegalArgumentException e) {
+        // not an OSGi version, so no range can include it
+      }
+    }
+
+    Integer[] order = new Integer[versions.size()];
+    for( int k=0; k<order.length; ++k )
+      order[k] = k;
+    Arrays.sort(order, (a, b) -> {
+      int c = versions.get(a).compareTo(versions.get(b));
+      return c != 0 ? c : valid.get(a).compareTo(valid.get(b));
+    });
+
+    List<Version> sortedVersions = new ArrayList<Version>(order.length);
+    List<String> sortedNames = new ArrayList<String>(order.length);
+    for( int k : order ) {
+      sortedVersions.add(versions.get(k));
+      sortedNames.add(valid.get(k));
+    }
+    return new VersionIndex(sortedVersions, sortedNames);
+  }
+
+  private static String read(Path indexFile, List<String> names) throws IOException {
+    try( BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8) ) {
+      String stamp = reader.readLine();
+      String line;
+      while( (line = reader.readLine()) != null )
+        if( ! line.isEmpty() )
+          names.add(line);
+      return stamp;
+    }
+    catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private static void write(Path indexFile, String stamp, List<String> names) throws IOException {
+
+    Files.createDirectories(indexFile.getParent());
+    Path temp = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+    try {
+      try( BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING) ) {
+        writer.write(stamp);
+        writer.write('\n');
+        for( String name : names ) {
+          writer.write(name);
+          writer.write('\n');
+        }
+      }
+      try {
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static long modified(Path path) throws IOException {
+    try {
+      return Files.getLastModifiedTime(path).to(TimeUnit.NANOSECONDS);
+    }
+    catch (NoSuchFileException e) {
+      return 0;
+    }
+  }
+
+  private static String key(Path repository, String groupId, String artifactId) throws IOException {
+    try {
+      String ga = repository.toAbsolutePath().normalize() + ":" + groupId + ":" + artifactId;
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(ga.getBytes(StandardCharsets.UTF_8));
+      return DatatypeConverter.printHexBinary(digest).toLowerCase(Locale.ROOT);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+  }
+}
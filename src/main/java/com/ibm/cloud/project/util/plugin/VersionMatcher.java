@@ -0,0 +1,120 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+
+/**
+ * Matches versions against OSGi version ranges, compiling each range once. Versions and range bounds 
+ * of up to three numeric components are packed into a long, 21 bits per component, and compared 
+ * without allocation. Anything with a qualifier, or a component too large to pack, falls back to
+ * {@link VersionRange#includes(Version)}.
+ */
+public class VersionMatcher {
+
+  private static final int BITS = 21;
+  private static final long MAX_COMPONENT = (1L << BITS) - 1;
+  private static final long UNPACKED = -1;
+
+  private static final int MAX_RANGES = 4096;
+  private static final Map<String,VersionMatcher> ranges = new ConcurrentHashMap<String,VersionMatcher>();
+
+  private final VersionRange range;
+  private final long left;
+  private final long right;
+  private final boolean leftClosed;
+  private final boolean rightClosed;
+  private final boolean unbounded;
+  private final boolean packed;
+
+  private VersionMatcher(VersionRange range) {
+    this.range = range;
+    this.left = pack(range.getLeft());
+    this.unbounded = range.getRight() == null;
+    this.right = unbounded ? 0 : pack(range.getRight());
+    this.leftClosed = range.getLeftType() == VersionRange.LEFT_CLOSED;
+    this.rightClosed = range.getRightType() == VersionRange.RIGHT_CLOSED;
+    this.packed = left != UNPACKED && right != UNPACKED;
+  }
+
+  /**
+   * The compiled form of a range, as accepted by {@link VersionRange#valueOf(String)}.
+   */
+  protected static VersionMatcher compile(String range) {
+    VersionMatcher matcher = ranges.get(range);
+    if( matcher == null ) {
+      matcher = new VersionMatcher(VersionRange.valueOf(range));
+      if( ranges.size() >= MAX_RANGES )
+        ranges.clear();
+      ranges.put(range, matcher);
+    }
+    return matcher;
+  }
+
+  protected static boolean includes(String range, String version) {
+    return compile(range).includes(version);
+  }
+
+  protected boolean includes(String version) {
+    if( packed ) {
+      long v = pack(version);
+      if( v != UNPACKED )
+        return (leftClosed ? v >= left : v > left) && (unbounded || (rightClosed ? v <= right : v < right));
+    }
+    return range.includes(Version.valueOf(version));
+  }
+
+  private static long pack(Version version) {
+    if( ! version.getQualifier().isEmpty() || version.getMajor() > MAX_COMPONENT || version.getMinor() > MAX_COMPONENT || version.getMicro() > MAX_COMPONENT )
+      return UNPACKED;
+    return ((long) version.getMajor() << (2 * BITS)) | ((long) version.getMinor() << BITS) | version.getMicro();
+  }
+
+  /**
+   * Pack a version of one to three numeric components, or return UNPACKED for anything else, 
+   * including surrounding whitespace and qualifiers.
+   */
+  protected static long pack(String version) {
+    long packed = 0;
+    long component = 0;
+    int components = 1;
+    boolean digits = false;
+    for( int k=0; k<version.length(); ++k ) {
+      char c = version.charAt(k);
+      if( c >= '0' && c <= '9' ) {
+        component = component * 10 + (c - '0');
+        if( component > MAX_COMPONENT )
+          return UNPACKED;
+        digits = true;
+      }
+      else if( c == '.' && digits && components < 3 ) {
+        packed = (packed << BITS) | component;
+        component = 0;
+        digits = false;
+        ++components;
+      }
+      else
+        return UNPACKED;
+    }
+    if( ! digits )
+      return UNPACKED;
+    packed = (packed << BITS) | component;
+    return packed << (BITS * (3 - components));
+  }
+}
@@ -0,0 +1,131 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A streaming implementation of the 64 bit xxHash function (seed 0). It is not a cryptographic 
+ * hash, and is meant for fast change detection only. The digest is the big-endian encoding 
+ * of the hash value.
+ */
+class XXHash64 implements DigestProvider.Hasher {
+
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+  private static final int STRIPE = 32;
+
+  private long v1 = PRIME1 + PRIME2;
+  private long v2 = PRIME2;
+  private long v3 = 0;
+  private long v4 = -PRIME1;
+
+  private long totalLength = 0;
+
+  // Holds a partial stripe between updates
+  private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+  @Override
+  public void update(byte[] input, int offset, int len) {
+    update(ByteBuffer.wrap(input, offset, len));
+  }
+
+  @Override
+  public void update(ByteBuffer input) {
+
+    ByteBuffer in = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+    input.position(input.limit());
+
+    totalLength += in.remaining();
+
+    if( pending.position() > 0 ) {
+      while( pending.hasRemaining() && in.hasRemaining() )
+        pending.put(in.get());
+      if( pending.hasRemaining() )
+        return;
+      pending.flip();
+      stripe(pending);
+      pending.clear();
+    }
+
+    while( in.remaining() >= STRIPE )
+      stripe(in);
+
+    pending.put(in);
+  }
+
+  @Override
+  public byte[] digest() {
+
+    long h;
+    if( totalLength >= STRIPE ) {
+      h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+      h = mergeRound(h, v1);
+      h = mergeRound(h, v2);
+      h = mergeRound(h, v3);
+      h = mergeRound(h, v4);
+    }
+    else {
+      h = PRIME5;
+    }
+
+    h += totalLength;
+
+    pending.flip();
+    while( pending.remaining() >= 8 ) {
+      h ^= round(0, pending.getLong());
+      h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+    }
+    if( pending.remaining() >= 4 ) {
+      h ^= (pending.getInt() & 0xFFFFFFFFL) * PRIME1;
+      h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+    }
+    while( pending.hasRemaining() ) {
+      h ^= (pending.get() & 0xFF) * PRIME5;
+      h = Long.rotateLeft(h, 11) * PRIME1;
+    }
+
+    h ^= h >>> 33;
+    h *= PRIME2;
+    h ^= h >>> 29;
+    h *= PRIME3;
+    h ^= h >>> 32;
+
+    return ByteBuffer.allocate(8).putLong(h).array();
+  }
+
+  private void stripe(ByteBuffer in) {
+    v1 = round(v1, in.getLong());
+    v2 = round(v2, in.getLong());
+    v3 = round(v3, in.getLong());
+    v4 = round(v4, in.getLong());
+  }
+
+  private static long round(long acc, long input) {
+    acc += input * PRIME2;
+    acc = Long.rotateLeft(acc, 31);
+    return acc * PRIME1;
+  }
+
+  private static long mergeRound(long acc, long val) {
+    acc ^= round(0, val);
+    return acc * PRIME1 + PRIME4;
+  }
+}
@@ -0,0 +1,90 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static com.ibm.cloud.project.util.plugin.MojoUtil.getPomCoordinate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.maven.shared.transfer.artifact.ArtifactCoordinate;
+import org.junit.Test;
+
+public class TestCheckParentReferenceMojo {
+
+  static String parentPomPath = "src/test/resources/testcase-parent-pom.xml";
+
+  @Test
+  public void testFindChildPoms() {
+
+    try {
+      Path root = Files.createTempDirectory("reactor");
+      Path parent = write(root.resolve("pom.xml"), "3.0");
+      Path a = write(root.resolve("a/pom.xml"), "[0.3,0.4)");
+      Path b = write(root.resolve("b/c/pom.xml"), "[0.3,0.4)");
+      write(root.resolve("a/target/pom.xml"), "[0.3,0.4)");
+      write(root.resolve(".git/pom.xml"), "[0.3,0.4)");
+
+      List<Path> children = CheckParentReferenceMojo.findChildPoms(root.toString(), null, parent);
+      assertEquals(2, children.size());
+      assertEquals(a, children.get(0));
+      assertEquals(b, children.get(1));
+
+      children = CheckParentReferenceMojo.findChildPoms(root.toString(), "b/c/pom.xml, a", parent);
+      assertEquals(b, children.get(0));
+      assertEquals(a, children.get(1));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testCheckChildPom() {
+
+    try {
+      Path root = Files.createTempDirectory("reactor");
+      ArtifactCoordinate parent = getPomCoordinate(parentPomPath);
+      SessionCache cache = new SessionCache();
+
+      assertNull(CheckParentReferenceMojo.checkChildPom(parent, write(root.resolve("a/pom.xml"), "[0.3,0.4)").toString(), cache));
+
+      String failure = CheckParentReferenceMojo.checkChildPom(parent, write(root.resolve("b/pom.xml"), "[0.4,0.5)").toString(), cache);
+      assertTrue("Expected a version mismatch: "+failure, failure.contains("[0.4,0.5)"));
+
+      Path orphan = root.resolve("c/pom.xml");
+      Files.createDirectories(orphan.getParent());
+      Files.write(orphan, "<project><artifactId>c</artifactId></project>".getBytes(StandardCharsets.UTF_8));
+      failure = CheckParentReferenceMojo.checkChildPom(parent, orphan.toString(), cache);
+      assertTrue("Expected a missing parent: "+failure, failure.contains("/project/parent/groupId"));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private static Path write(Path pom, String parentVersion) throws Exception {
+    Files.createDirectories(pom.getParent());
+    Files.write(pom, ("<project><parent><groupId>dev.appsody</groupId><artifactId>spring-boot2-stack</artifactId>"
+            + "<version>" + parentVersion + "</version></parent><artifactId>child</artifactId></project>").getBytes(StandardCharsets.UTF_8));
+    return pom;
+  }
+}
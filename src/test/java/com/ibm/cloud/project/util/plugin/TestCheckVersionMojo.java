@@ -14,6 +14,14 @@
  */    
 package com.ibm.cloud.project.util.plugin;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.testing.AbstractMojoTestCase;
 import org.junit.Test;
@@ -65,6 +73,47 @@ public class TestCheckVersionMojo extends AbstractMojoTestCase {
     }
   }
 
+  @Test
+  public void testCheckPairs() {
+
+    String pairs = "# version range\n0.3.7 [0.3,0.4)\n\n0.4\t[0.3, 0.4)\n1.0.0.beta [1.0.0.alpha,2)\n1 not-a-range\n";
+    try {
+      StringWriter results = new StringWriter();
+      long[] counts = CheckVersionMojo.checkPairs(new StringReader(pairs), results);
+      assertEquals(4, counts[0]);
+      assertEquals(2, counts[1]);
+      assertEquals("ok\t0.3.7\t[0.3,0.4)\nfail\t0.4\t[0.3, 0.4)\nok\t1.0.0.beta\t[1.0.0.alpha,2)\nerror\t1\tnot-a-range\n", results.toString());
+    }
+    catch (Exception e) {
+      fail(e.getMessage());
+    }
+  }
+
+  @Test
+  public void testPairsFromStdin() {
+
+    InputStream stdin = System.in;
+    AtomicBoolean closed = new AtomicBoolean();
+    System.setIn(new ByteArrayInputStream("0.3.7 [0.3,0.4)\n".getBytes(StandardCharsets.UTF_8)) {
+      @Override
+      public void close() throws IOException {
+        closed.set(true);
+      }
+    });
+    try {
+      CheckVersionMojo mojo = new CheckVersionMojo();
+      setVariableValueToObject(mojo, "pairsFile", "-");
+      mojo.execute();
+      assertFalse("Expected stdin left open", closed.get());
+    }
+    catch (Exception e) {
+      fail(e.getMessage());
+    }
+    finally {
+      System.setIn(stdin);
+    }
+  }
+
   @Override
   protected void setUp() throws Exception {
     // bypass for no maven project context
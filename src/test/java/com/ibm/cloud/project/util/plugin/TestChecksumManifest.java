@@ -0,0 +1,113 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static com.ibm.cloud.project.util.plugin.MojoUtil.getMD5Digest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestChecksumManifest {
+
+  @Test
+  public void testGenerate() {
+
+    try {
+      Path root = Files.createTempDirectory("manifest");
+      try {
+        Files.createDirectories(root.resolve("b/c"));
+        Files.write(root.resolve("b/c/one.xml"), "<one/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("a.xml"), "<a/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("b/two.txt"), "two".getBytes(StandardCharsets.UTF_8));
+
+        StringWriter writer = new StringWriter();
+        ChecksumManifest.generate(root, ChecksumManifest.listFiles(root, "**.xml"), DigestAlgorithm.MD5, null, 4, writer);
+
+        List<ChecksumManifest.Entry> entries = ChecksumManifest.read(new StringReader(writer.toString()));
+        assertEquals("unexpected manifest size", 2, entries.size());
+        assertEquals("unexpected manifest order", "a.xml", entries.get(0).path);
+        assertEquals("unexpected manifest order", "b/c/one.xml", entries.get(1).path);
+        assertEquals("unexpected file size", 6, entries.get(1).size);
+        assertEquals("unexpected digest", getMD5Digest(new File(root.toFile(), "b/c/one.xml")), entries.get(1).digest);
+      }
+      finally {
+        for( Path p : new Path[] { root.resolve("b/c/one.xml"), root.resolve("b/c"), root.resolve("b/two.txt"), root.resolve("b"), root.resolve("a.xml"), root } )
+          Files.deleteIfExists(p);
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testVerify() {
+
+    try {
+      Path root = Files.createTempDirectory("manifest");
+      try {
+        Files.write(root.resolve("a.xml"), "<a/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("b.xml"), "<b/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("c.xml"), "<c/>".getBytes(StandardCharsets.UTF_8));
+
+        StringWriter writer = new StringWriter();
+        ChecksumManifest.generate(root, ChecksumManifest.listFiles(root, "**"), DigestAlgorithm.SHA256, null, 2, writer);
+        List<ChecksumManifest.Entry> entries = ChecksumManifest.read(new StringReader(writer.toString()));
+
+        assertTrue("Expected a clean tree", ChecksumManifest.verify(root, entries, null, 2).isEmpty());
+
+        Files.write(root.resolve("a.xml"), "<x/>".getBytes(StandardCharsets.UTF_8));
+        Files.delete(root.resolve("c.xml"));
+
+        List<ChecksumManifest.Entry> mismatches = ChecksumManifest.verify(root, entries, null, 2);
+        assertEquals("unexpected mismatch count", 2, mismatches.size());
+        assertEquals("a.xml", mismatches.get(0).path);
+        assertEquals("c.xml", mismatches.get(1).path);
+      }
+      finally {
+        for( Path p : new Path[] { root.resolve("a.xml"), root.resolve("b.xml"), root.resolve("c.xml"), root } )
+          Files.deleteIfExists(p);
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testResolveOutsideRoot() {
+
+    try {
+      ChecksumManifest.resolve(Paths.get("base"), ChecksumManifest.Entry.parse("../escape.xml\t1\tABCD"));
+      fail("Expected IOException for a path outside of the root");
+    }
+    catch (IOException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,184 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestContentEncoding {
+
+  private static final String TEXT = "sha256:9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08\n";
+
+  HttpServer server;
+  byte[] reference;
+  AtomicLong sent = new AtomicLong();
+
+  @Before
+  public void startServer() throws IOException {
+    reference = new byte[64 * 1024];
+    // Compressible, but not trivially
+    Random random = new Random(1);
+    for( int k = 0; k < reference.length; ++k )
+      reference[k] = (byte) ('a' + random.nextInt(4));
+
+    byte[] text = TEXT.getBytes(StandardCharsets.UTF_8);
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/text", exchange -> {
+      String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+      if( accept != null && accept.contains("gzip") )
+        respond(exchange, gzip(text), "gzip");
+      else
+        respond(exchange, text, null);
+    });
+    server.createContext("/zlib", exchange -> respond(exchange, deflate(text, false), "deflate"));
+    server.createContext("/raw-deflate", exchange -> respond(exchange, deflate(text, true), "deflate"));
+    server.createContext("/ref.bin.gz", exchange -> respond(exchange, gzip(reference), null));
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private void respond(HttpExchange exchange, byte[] body, String contentEncoding) throws IOException {
+    if( contentEncoding != null )
+      exchange.getResponseHeaders().set("Content-Encoding", contentEncoding);
+    exchange.sendResponseHeaders(200, body.length);
+    try( OutputStream out = exchange.getResponseBody() ) {
+      out.write(body);
+    }
+    sent.addAndGet(body.length);
+  }
+
+  @Test
+  public void testGzipNegotiated() {
+
+    try {
+      assertEquals(TEXT, MojoUtil.downloadText(url("/text")));
+      assertEquals("Expected a compressed transfer", gzip(TEXT.getBytes(StandardCharsets.UTF_8)).length, sent.get());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testDeflate() {
+
+    try {
+      assertEquals(TEXT, MojoUtil.downloadText(url("/zlib")));
+      assertEquals(TEXT, MojoUtil.downloadText(url("/raw-deflate")));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testCachedDecoded() {
+
+    try {
+      Path dir = Files.createTempDirectory("http-cache");
+      MojoUtil.useHttpCache(true, dir.toString(), 1, new SystemStreamLog());
+      try {
+        assertEquals(TEXT, MojoUtil.downloadText(url("/text")));
+        assertEquals(TEXT, MojoUtil.downloadText(url("/text")));
+      }
+      finally {
+        MojoUtil.releaseHttpCache(new SystemStreamLog());
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testCompressedReference() {
+
+    try {
+      Path dir = Files.createTempDirectory("gz");
+      Path source = dir.resolve("reference.bin");
+      Files.write(source, reference);
+      String expected = MojoUtil.getDigest(source.toFile(), DigestAlgorithm.SHA256);
+
+      // Decompressed as it streams, and checked against the digest of the decompressed content
+      Path file = dir.resolve("subject.bin");
+      Files.write(file, "damaged".getBytes(StandardCharsets.UTF_8));
+      MojoUtil.replaceFile(url("/ref.bin.gz"), file.toFile(), DigestAlgorithm.SHA256, expected);
+      assertArrayEquals(reference, Files.readAllBytes(file));
+
+      // A compressed file is protected as it is
+      Path gz = dir.resolve("subject.bin.gz");
+      MojoUtil.replaceFile(url("/ref.bin.gz"), gz.toFile());
+      assertArrayEquals(gzip(reference), Files.readAllBytes(gz));
+
+      // Also for file: references and text
+      Path text = dir.resolve("cksum.txt.gz");
+      Files.write(text, gzip(TEXT.getBytes(StandardCharsets.UTF_8)));
+      assertEquals(TEXT, MojoUtil.downloadText(text.toUri().toURL()));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private URL url(String path) throws IOException {
+    return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+  }
+
+  private static byte[] gzip(byte[] content) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try( OutputStream out = new GZIPOutputStream(bytes) ) {
+      out.write(content);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] deflate(byte[] content, boolean raw) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try( OutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, raw)) ) {
+      out.write(content);
+    }
+    return bytes.toByteArray();
+  }
+
+}
@@ -0,0 +1,139 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+public class TestDaemon {
+
+  @Test
+  public void testGoals() {
+
+    try {
+      Set<String> goals = MojoDescriptors.load(getClass().getClassLoader()).getGoals();
+      assertTrue(goals.contains("check-version"));
+      assertTrue(goals.contains("verify-file"));
+      assertFalse("Expected goals needing a session to be excluded", goals.contains("check-parent-pom"));
+      assertFalse(goals.contains("verify-repo"));
+      assertFalse("Expected the daemon not to serve itself", goals.contains("daemon"));
+      assertFalse(goals.contains("help"));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testRequests() {
+
+    try {
+      Path dir = Files.createTempDirectory("daemon");
+      Daemon daemon = new Daemon(dir, 0, new SystemStreamLog());
+      daemon.start(false);
+      Thread server = new Thread(() -> {
+        try {
+          daemon.serve();
+        }
+        catch (Exception e) {
+          // reported by the requests failing
+        }
+      });
+      server.start();
+
+      ByteArrayOutputStream console = new ByteArrayOutputStream();
+      PrintStream out = new PrintStream(console, true, "UTF-8");
+
+      assertEquals(0, DaemonClient.run(dir, new String[] { "check-version", "range_spec=[0.3,0.4)", "version=0.3.7" }, out));
+      assertTrue(console.toString("UTF-8").contains("[INFO] Verifying version 0.3.7"));
+
+      assertEquals(1, DaemonClient.run(dir, new String[] { "check-version", "range_spec=[0.3,0.4)", "version=0.4" }, out));
+      assertTrue(console.toString("UTF-8").contains("[ERROR] Invalid version: '0.4'"));
+
+      assertEquals(1, DaemonClient.run(dir, new String[] { "check-version", "version=0.4", "bogus=1" }, out));
+      assertEquals(1, DaemonClient.run(dir, new String[] { "check-parent-pom" }, out));
+      assertEquals(1, DaemonClient.run(dir, new String[] { "daemon" }, out));
+      assertEquals(1, DaemonClient.run(dir, new String[] { "verify-file", "file_path=pom.xml", "cksum_url=file:///none", "watch=true" }, out));
+      assertTrue(console.toString("UTF-8").contains("[ERROR] watch is not supported by the daemon"));
+
+      // Relative paths are those of the client, not the daemon
+      Path project = Files.createTempDirectory("project");
+      Files.write(project.resolve("pom.xml"), "<project/>".getBytes(StandardCharsets.UTF_8));
+      assertEquals(0, DaemonClient.run(dir, project, new String[] { "gen-cksum", "file_path=pom.xml", "signature_path=pom.xml.blocksig" }, out));
+      assertTrue(Files.exists(project.resolve("pom.xml.blocksig")));
+
+      // The goal's output is the client's stdout, and its log goes to the console
+      ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+      ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+      assertEquals(0, DaemonClient.run(dir, project, new String[] { "gen-cksum", "file_path=pom.xml" }, new ByteArrayInputStream(new byte[0]), 
+              new PrintStream(stdout, true, "UTF-8"), new PrintStream(stderr, true, "UTF-8")));
+      assertEquals(MojoUtil.getMD5Digest(project.resolve("pom.xml").toFile()) + "\n", stdout.toString("UTF-8").replace("\r", ""));
+      assertFalse(stdout.toString("UTF-8").contains("[INFO]"));
+
+      // A pairs file of "-" is read from the client's stdin
+      stdout.reset();
+      byte[] pairs = "0.3.7\t[0.3,0.4)\n0.4\t[0.3,0.4)\n".getBytes(StandardCharsets.UTF_8);
+      assertEquals(1, DaemonClient.run(dir, project, new String[] { "check-version", "pairs_file=-" }, new ByteArrayInputStream(pairs), 
+              new PrintStream(stdout, true, "UTF-8"), new PrintStream(stderr, true, "UTF-8")));
+      assertTrue(stdout.toString("UTF-8"), stdout.toString("UTF-8").startsWith("ok\t0.3.7\t[0.3,0.4)"));
+      assertTrue(stderr.toString("UTF-8").contains("[INFO] Checked 2 version/range pairs, 1 failed"));
+
+      Files.write(dir.resolve(DaemonProtocol.TOKEN), "wrong".getBytes(StandardCharsets.UTF_8));
+      assertEquals(1, DaemonClient.run(dir, new String[] { "ping" }, out));
+      assertTrue(console.toString("UTF-8").contains("[ERROR] Not authorized"));
+
+      daemon.stop();
+      server.join(10000);
+      assertFalse(server.isAlive());
+      assertFalse(Files.exists(dir.resolve(DaemonProtocol.PORT)));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testResolve() {
+    Path dir = Paths.get("/work/project");
+    assertEquals("file_path=" + dir.resolve("pom.xml"), DaemonProtocol.resolve("file_path=pom.xml", dir));
+    assertEquals("metrics_file=" + dir.resolve("m.json"), DaemonProtocol.resolve("metrics_file=m.json", dir));
+    assertEquals("manifest_url=" + dir.resolve("config.cksum"), DaemonProtocol.resolve("manifest_url=config.cksum", dir));
+    assertEquals("cksum_url=file:///tmp/a.md5", DaemonProtocol.resolve("cksum_url=file:///tmp/a.md5", dir));
+    assertEquals("file_path=/tmp/pom.xml", DaemonProtocol.resolve("file_path=/tmp/pom.xml", dir));
+    assertEquals("pairs_file=-", DaemonProtocol.resolve("pairs_file=-", dir));
+    assertEquals("version=0.3", DaemonProtocol.resolve("version=0.3", dir));
+  }
+
+  @Test
+  public void testEscape() {
+    String field = "a\tb\\n\nc\r";
+    assertEquals(field, DaemonProtocol.unescape(DaemonProtocol.escape(field)));
+    assertFalse(DaemonProtocol.escape(field).contains("\t"));
+  }
+}
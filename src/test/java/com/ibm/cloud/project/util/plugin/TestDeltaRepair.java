@@ -0,0 +1,244 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestDeltaRepair {
+
+  private static final int BLOCK = 4096;
+  private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+  HttpServer server;
+  byte[] reference;
+  AtomicLong served = new AtomicLong();
+
+  @Before
+  public void startServer() throws IOException {
+    reference = new byte[1024 * 1024 + 123];
+    new Random(1).nextBytes(reference);
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/ranges", exchange -> respond(exchange, true));
+    server.createContext("/whole", exchange -> respond(exchange, false));
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private void respond(HttpExchange exchange, boolean ranges) throws IOException {
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    Matcher matcher = range != null && ranges ? RANGE.matcher(range) : null;
+    if( matcher != null && matcher.matches() ) {
+      int start = Integer.parseInt(matcher.group(1));
+      int end = Integer.parseInt(matcher.group(2)) + 1;
+      exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + reference.length);
+      exchange.sendResponseHeaders(206, end - start);
+      try( OutputStream out = exchange.getResponseBody() ) {
+        out.write(reference, start, end - start);
+      }
+      served.addAndGet(end - start);
+      return;
+    }
+    exchange.sendResponseHeaders(200, reference.length);
+    try( OutputStream out = exchange.getResponseBody() ) {
+      out.write(reference);
+    }
+    served.addAndGet(reference.length);
+  }
+
+  @Test
+  public void testSignature() {
+
+    try {
+      Path file = write(reference);
+      BlockSignature signature = BlockSignature.generate(file.toFile(), BLOCK);
+      assertEquals(257, signature.getBlockCount());
+      assertEquals(123, signature.blockLength(256));
+
+      StringWriter text = new StringWriter();
+      signature.write(text);
+      BlockSignature read = BlockSignature.read(new StringReader(text.toString()));
+      assertEquals(signature.size, read.size);
+      assertArrayEquals(signature.weak, read.weak);
+      assertArrayEquals(signature.strong[256], read.strong[256]);
+
+      // Every block found in place in an identical file
+      long[] found = read.match(file.toFile());
+      for( int k = 0; k < found.length; ++k )
+        assertEquals(read.blockOffset(k), found[k]);
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testRepairFromFile() {
+
+    try {
+      Path source = write(reference);
+      Path local = write(damage(reference));
+      BlockSignature signature = BlockSignature.generate(source.toFile(), BLOCK);
+      String expected = MojoUtil.getDigest(source.toFile(), DigestAlgorithm.SHA256);
+
+      DeltaRepair.Result result = DeltaRepair.repair(source.toUri().toURL(), signature, local.toFile(), DigestAlgorithm.SHA256, expected);
+      assertNotNull(result);
+      assertArrayEquals(reference, Files.readAllBytes(local));
+      // The inserted bytes shift later blocks, which are still found; only the two damaged blocks are fetched
+      assertEquals(2, result.ranges);
+      assertEquals(2 * BLOCK, result.fetched);
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testRepairWithRanges() {
+
+    try {
+      Path local = write(damage(reference));
+      BlockSignature signature = BlockSignature.generate(write(reference).toFile(), BLOCK);
+      URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/ranges");
+
+      DeltaRepair.Result result = DeltaRepair.repair(url, signature, local.toFile(), DigestAlgorithm.MD5, null);
+      assertNotNull(result);
+      assertArrayEquals(reference, Files.readAllBytes(local));
+      assertEquals(2 * BLOCK, served.get());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testRangesNotSupported() {
+
+    try {
+      byte[] damaged = damage(reference);
+      Path local = write(damaged);
+      BlockSignature signature = BlockSignature.generate(write(reference).toFile(), BLOCK);
+      URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/whole");
+
+      assertNull(DeltaRepair.repair(url, signature, local.toFile(), DigestAlgorithm.MD5, null));
+      assertArrayEquals("Expected the file untouched", damaged, Files.readAllBytes(local));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testFallbackReleasesConnection() {
+
+    // One connection per host, so a leaked permit would block the next request
+    HttpTransport transport = HttpTransport.configure(1000, 1000, 1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Path local = write(damage(reference));
+      BlockSignature signature = BlockSignature.generate(write(reference).toFile(), BLOCK);
+      URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/whole");
+
+      assertNull(DeltaRepair.repair(url, signature, local.toFile(), DigestAlgorithm.MD5, null));
+
+      Future<Integer> next = executor.submit(() -> {
+        try( HttpTransport.Response response = transport.request(url, Collections.<String,String>emptyMap()) ) {
+          response.abort();
+          return response.getStatus();
+        }
+      });
+      assertEquals(Integer.valueOf(200), next.get(5, TimeUnit.SECONDS));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+    finally {
+      executor.shutdownNow();
+      HttpTransport.configure(0, 0, 0);
+    }
+  }
+
+  @Test
+  public void testMostlyChanged() {
+
+    try {
+      byte[] other = new byte[reference.length];
+      new Random(2).nextBytes(other);
+      Path local = write(other);
+      Path source = write(reference);
+      BlockSignature signature = BlockSignature.generate(source.toFile(), BLOCK);
+
+      assertNull(DeltaRepair.repair(source.toUri().toURL(), signature, local.toFile(), DigestAlgorithm.MD5, null));
+      assertEquals(other.length, Files.size(local));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  /**
+   * A byte changed in block 10, and 7 bytes inserted in block 100.
+   */
+  private static byte[] damage(byte[] content) {
+    int insert = 100 * BLOCK + 5;
+    byte[] damaged = new byte[content.length + 7];
+    System.arraycopy(content, 0, damaged, 0, insert);
+    System.arraycopy(content, insert, damaged, insert + 7, content.length - insert);
+    damaged[10 * BLOCK + 1] ^= 1;
+    return damaged;
+  }
+
+  private static Path write(byte[] content) throws IOException {
+    Path file = Files.createTempFile("delta", ".bin");
+    file.toFile().deleteOnExit();
+    Files.write(file, content);
+    return file;
+  }
+
+}
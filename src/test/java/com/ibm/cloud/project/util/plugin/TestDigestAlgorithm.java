@@ -0,0 +1,139 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static com.ibm.cloud.project.util.plugin.MojoUtil.verifyFileIntegrity;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.junit.Test;
+
+public class TestDigestAlgorithm {
+
+  static String parentPomPath = "src/test/resources/testcase-parent-pom.xml";
+
+  @Test
+  public void testKnownValues() {
+
+    try {
+      assertEquals("EF46DB3751D8E999", hex(DigestAlgorithm.XXH64, ""));
+      assertEquals("44BC2CF5AD770999", hex(DigestAlgorithm.XXH64, "abc"));
+      assertEquals("E3069283", hex(DigestAlgorithm.CRC32C, "123456789"));
+      assertEquals("BA7816BF8F01CFEA414140DE5DAE2223B00361A396177A9CB410FF61F20015AD", hex(DigestAlgorithm.SHA256, "abc"));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testIncrementalUpdates() {
+
+    byte[] content = new byte[10000];
+    new Random(7).nextBytes(content);
+
+    try {
+      for( DigestAlgorithm algorithm : DigestAlgorithm.values() ) {
+        DigestProvider.Hasher whole = algorithm.newHasher();
+        whole.update(content, 0, content.length);
+
+        // Odd sized pieces, alternating heap arrays and direct buffers
+        DigestProvider.Hasher pieces = algorithm.newHasher();
+        int offset = 0;
+        for( int k=1; offset < content.length; ++k ) {
+          int n = Math.min(k * 7, content.length - offset);
+          if( k % 2 == 0 ) {
+            pieces.update(content, offset, n);
+          }
+          else {
+            ByteBuffer buff = ByteBuffer.allocateDirect(n);
+            buff.put(content, offset, n).flip();
+            pieces.update(buff);
+          }
+          offset += n;
+        }
+
+        assertArrayEquals("Incremental digest mismatch for: "+algorithm, whole.digest(), pieces.digest());
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testDetect() {
+
+    try {
+      assertEquals(DigestAlgorithm.MD5, DigestAlgorithm.detect("64666CCB597DE6BA71A7EF7437402F33\n"));
+      assertEquals(DigestAlgorithm.SHA256, DigestAlgorithm.detect("sha256:00"));
+      assertEquals(DigestAlgorithm.SHA256, DigestAlgorithm.forName("SHA-256"));
+      assertEquals(DigestAlgorithm.XXH64, DigestAlgorithm.detect("EF46DB3751D8E999"));
+      assertEquals("00", DigestAlgorithm.digestValue(" sha256:00 "));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+
+    try {
+      DigestAlgorithm.detect("ABC");
+      fail("Expected NoSuchAlgorithmException for unrecognized checksum");
+    }
+    catch (NoSuchAlgorithmException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testVerifyFile() {
+
+    try {
+      File pom = new File(parentPomPath);
+      File cksum = File.createTempFile("cksum", ".txt");
+      try {
+        for( DigestAlgorithm algorithm : DigestAlgorithm.values() ) {
+          String text = DigestAlgorithm.format(algorithm, MojoUtil.getDigest(pom, algorithm));
+          Files.write(cksum.toPath(), text.getBytes(StandardCharsets.UTF_8));
+          assertTrue("Checksum match failed for: "+algorithm, verifyFileIntegrity(pom, cksum.toURI().toURL()));
+        }
+      }
+      finally {
+        cksum.delete();
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private static String hex(DigestAlgorithm algorithm, String text) throws NoSuchAlgorithmException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    DigestProvider.Hasher hasher = algorithm.newHasher();
+    hasher.update(bytes, 0, bytes.length);
+    return DatatypeConverter.printHexBinary(hasher.digest());
+  }
+
+}
@@ -0,0 +1,108 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static com.ibm.cloud.project.util.plugin.MojoUtil.getDigest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+public class TestDigestCache {
+
+  @Test
+  public void testReuseAndInvalidate() {
+
+    try {
+      Path dir = Files.createTempDirectory("cache");
+      File file = writeOld(dir, "subject.txt", "one");
+
+      DigestCache cache = DigestCache.open(dir.resolve("cache").toString(), 10);
+      String digest = getDigest(file, DigestAlgorithm.MD5, cache);
+      assertEquals("Expected a cache miss", 1, cache.getMisses());
+      cache.save();
+
+      cache = DigestCache.open(dir.resolve("cache").toString(), 10);
+      assertEquals("Expected a cached digest", digest, cache.lookup(file, DigestAlgorithm.MD5));
+      assertNull("Expected no digest for another algorithm", cache.lookup(file, DigestAlgorithm.SHA256));
+
+      // Same size, new timestamp
+      Files.write(file.toPath(), "two".getBytes(StandardCharsets.UTF_8));
+      Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis() - 60000));
+      assertNull("Expected a stale digest to be ignored", cache.lookup(file, DigestAlgorithm.MD5));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testRacyTimestamp() {
+
+    try {
+      Path dir = Files.createTempDirectory("cache");
+      File file = dir.resolve("subject.txt").toFile();
+      Files.write(file.toPath(), "one".getBytes(StandardCharsets.UTF_8));
+
+      DigestCache cache = DigestCache.open(dir.resolve("cache").toString(), 10);
+      getDigest(file, DigestAlgorithm.MD5, cache);
+      assertNull("Expected no digest for a racy timestamp", cache.lookup(file, DigestAlgorithm.MD5));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testEviction() {
+
+    try {
+      Path dir = Files.createTempDirectory("cache");
+      String cacheDir = dir.resolve("cache").toString();
+      File[] files = { writeOld(dir, "a.txt", "a"), writeOld(dir, "b.txt", "b"), writeOld(dir, "c.txt", "c") };
+
+      DigestCache cache = DigestCache.open(cacheDir, 2);
+      for( File file : files ) {
+        getDigest(file, DigestAlgorithm.MD5, cache);
+        Thread.sleep(5);
+      }
+      cache.save();
+
+      cache = DigestCache.open(cacheDir, 2);
+      assertNull("Expected least recently used digest evicted", cache.lookup(files[0], DigestAlgorithm.MD5));
+      assertNotNull(cache.lookup(files[1], DigestAlgorithm.MD5));
+      assertNotNull(cache.lookup(files[2], DigestAlgorithm.MD5));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private static File writeOld(Path dir, String name, String content) throws Exception {
+    Path path = dir.resolve(name);
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - 3600000));
+    return path.toFile();
+  }
+
+}
@@ -0,0 +1,68 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestDigestEngine {
+
+  @Test
+  public void testStrategyFor() {
+    assertEquals(DigestEngine.Strategy.HEAP, DigestEngine.strategyFor(0));
+    assertEquals(DigestEngine.Strategy.CHANNEL, DigestEngine.strategyFor(DigestEngine.CHANNEL_THRESHOLD));
+    assertEquals(DigestEngine.Strategy.MAPPED, DigestEngine.strategyFor(DigestEngine.MAPPED_THRESHOLD));
+  }
+
+  @Test
+  public void testStrategiesAgree() {
+
+    try {
+      File file = File.createTempFile("digest", ".bin");
+      try {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(content);
+        Files.write(file.toPath(), content);
+
+        byte[] expected = MessageDigest.getInstance("MD5").digest(content);
+
+        for( DigestEngine.Strategy strategy : DigestEngine.Strategy.values() ) {
+          DigestProvider.Hasher digest = DigestAlgorithm.MD5.newHasher();
+          DigestEngine.update(digest, file, strategy);
+          assertArrayEquals("Digest mismatch for strategy: "+strategy, expected, digest.digest());
+        }
+
+        DigestProvider.Hasher digest = DigestAlgorithm.MD5.newHasher();
+        DigestEngine.updateMapped(digest, file, 1024 * 1024 + 7);
+        assertArrayEquals("Digest mismatch across mapped regions", expected, digest.digest());
+      }
+      finally {
+        file.delete();
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+}
@@ -0,0 +1,169 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TestExecutionMetrics {
+
+  @Test
+  public void testSummary() {
+
+    try {
+      Path dir = Files.createTempDirectory("metrics");
+      File file = dir.resolve("subject.txt").toFile();
+      Files.write(file.toPath(), new byte[10000]);
+
+      ExecutionMetrics metrics = ExecutionMetrics.start("gen-cksum");
+      assertSame(metrics, ExecutionMetrics.current());
+      MojoUtil.getDigest(file, DigestAlgorithm.SHA256);
+      MojoUtil.getPomCoordinate("src/test/resources/testcase-parent-pom.xml");
+      metrics.cache("digest", 3, 1);
+      metrics.succeeded();
+
+      assertEquals(1, metrics.getPhaseCount(ExecutionMetrics.Phase.HASH));
+      assertEquals(1, metrics.getPhaseCount(ExecutionMetrics.Phase.PARSE));
+      assertEquals(0, metrics.getPhaseCount(ExecutionMetrics.Phase.DOWNLOAD));
+      assertEquals(10000, metrics.getBytesHashed());
+
+      Path summary = dir.resolve("out/metrics.json");
+      metrics.finish(summary.toString(), new SystemStreamLog());
+      assertNotSame("Expected metrics detached after finish", metrics, ExecutionMetrics.current());
+
+      String json = new String(Files.readAllBytes(summary), StandardCharsets.UTF_8);
+      assertTrue(json, json.contains("\"goal\": \"gen-cksum\""));
+      assertTrue(json, json.contains("\"success\": true"));
+      assertTrue(json, json.contains("\"hash\": { \"count\": 1, \"ms\": "));
+      assertTrue(json, json.contains("\"bytes\": { \"hashed\": 10000, \"fetched\": 0 }"));
+      assertTrue(json, json.contains("\"digest\": { \"hits\": 3, \"misses\": 1 }"));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testDownloadBytes() {
+
+    try {
+      Path file = Files.createTempFile("metrics", ".txt");
+      Files.write(file, "0123456789".getBytes(StandardCharsets.UTF_8));
+
+      ExecutionMetrics metrics = ExecutionMetrics.start("verify-file");
+      MojoUtil.downloadText(file.toUri().toURL());
+      metrics.finish(null, new SystemStreamLog());
+
+      assertEquals(1, metrics.getPhaseCount(ExecutionMetrics.Phase.DOWNLOAD));
+      assertEquals(10, metrics.getBytesFetched());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testConcurrentGoals() {
+
+    try {
+      Path file = Files.createTempFile("metrics", ".txt");
+      Files.write(file, new byte[1000]);
+
+      ExecutionMetrics metrics = ExecutionMetrics.start("gen-cksum");
+      ExecutionMetrics[] other = new ExecutionMetrics[1];
+      Thread thread = new Thread(() -> {
+        other[0] = ExecutionMetrics.start("verify-file");
+        try {
+          MojoUtil.getDigest(file.toFile(), DigestAlgorithm.MD5);
+        }
+        catch (Exception e) {
+          // counted as nothing hashed
+        }
+        other[0].finish(null, new SystemStreamLog());
+      });
+      thread.start();
+      thread.join();
+
+      assertSame("Expected another goal's finish not to detach this one", metrics, ExecutionMetrics.current());
+      assertEquals(0, metrics.getBytesHashed());
+      assertEquals(1000, other[0].getBytesHashed());
+
+      // Threads started by the goal record into its metrics
+      Thread worker = new Thread(() -> ExecutionMetrics.current().addBytesHashed(10));
+      worker.start();
+      worker.join();
+      metrics.finish(null, new SystemStreamLog());
+      assertEquals(10, metrics.getBytesHashed());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testFlightRecorderEvents() {
+
+    try {
+      Path dir = Files.createTempDirectory("metrics");
+      File file = dir.resolve("subject.txt").toFile();
+      Files.write(file.toPath(), new byte[4096]);
+      Path jfr = dir.resolve("test.jfr");
+
+      try( Recording recording = new Recording() ) {
+        recording.enable("com.ibm.cloud.project.util.Phase");
+        recording.enable("com.ibm.cloud.project.util.Goal");
+        recording.start();
+
+        ExecutionMetrics metrics = ExecutionMetrics.start("gen-cksum");
+        MojoUtil.getDigest(file, DigestAlgorithm.MD5);
+        metrics.succeeded();
+        metrics.finish(null, new SystemStreamLog());
+
+        recording.stop();
+        recording.dump(jfr);
+      }
+
+      List<String> events = new ArrayList<String>();
+      for( RecordedEvent event : RecordingFile.readAllEvents(jfr) ) {
+        if( event.getEventType().getName().endsWith(".Phase") )
+          events.add(event.getString("goal") + " " + event.getString("phase") + " " + event.getLong("bytes"));
+        else
+          events.add(event.getString("goal") + " " + event.getBoolean("success") + " " + event.getLong("bytesHashed"));
+      }
+      assertEquals("[gen-cksum hash 4096, gen-cksum true 4096]", events.toString());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+}
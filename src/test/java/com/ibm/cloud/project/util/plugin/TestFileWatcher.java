@@ -0,0 +1,128 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TestFileWatcher {
+
+  @Test
+  public void testDebounce() {
+
+    try {
+      Path dir = Files.createTempDirectory("watch");
+      Path file = dir.resolve("pom.xml");
+      Files.write(file, "one".getBytes(StandardCharsets.UTF_8));
+
+      try( FileWatcher watcher = new FileWatcher(file, 200) ) {
+        assertFalse("Expected no change", watcher.awaitChange(100));
+
+        // Other files in the directory are ignored
+        Files.write(dir.resolve("other.txt"), "x".getBytes(StandardCharsets.UTF_8));
+        assertFalse("Expected other files ignored", watcher.awaitChange(300));
+
+        // A burst of writes is one change
+        for( String content : new String[] { "t", "tw", "two" } ) {
+          Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+          Thread.sleep(20);
+        }
+        assertTrue("Expected a change", watcher.awaitChange(5000 + FileWatcher.latencyMillis()));
+        assertFalse("Expected the burst reported once", watcher.awaitChange(300));
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testWatchRestores() {
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Path dir = Files.createTempDirectory("watch");
+      Path file = dir.resolve("pom.xml");
+      byte[] content = "<project/>".getBytes(StandardCharsets.UTF_8);
+      Files.write(file, content);
+      Path cksum = dir.resolve("pom.xml.md5");
+      Files.write(cksum, MojoUtil.getMD5Digest(file.toFile()).getBytes(StandardCharsets.UTF_8));
+
+      // Where the watch service polls, changes are seen later
+      long latency = FileWatcher.latencyMillis();
+      Future<Integer> goal = executor.submit(() -> ProjectUtilMain.run(new String[] { "verify-file", 
+              "file_path=" + file, "cksum_url=" + cksum.toUri(), "ref_url=" + file.toUri(),
+              "replace_on_fail=true", "watch=true", "watch_debounce=50", "watch_timeout=" + (3 + 2 * latency / 1000) }));
+
+      // Edit the protected file once the watch has started
+      Thread.sleep(1000 + latency);
+      Files.write(file, "<project><edited/></project>".getBytes(StandardCharsets.UTF_8));
+
+      long deadline = System.currentTimeMillis() + 3000 + latency;
+      while( ! new String(Files.readAllBytes(file), StandardCharsets.UTF_8).equals("<project/>") && System.currentTimeMillis() < deadline )
+        Thread.sleep(20);
+      assertEquals("<project/>", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+      assertEquals(Integer.valueOf(0), goal.get());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWatchFailsWhileViolated() {
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Path dir = Files.createTempDirectory("watch");
+      Path file = dir.resolve("pom.xml");
+      Files.write(file, "<project/>".getBytes(StandardCharsets.UTF_8));
+      Path cksum = dir.resolve("pom.xml.md5");
+      Files.write(cksum, MojoUtil.getMD5Digest(file.toFile()).getBytes(StandardCharsets.UTF_8));
+
+      long latency = FileWatcher.latencyMillis();
+      Future<Integer> goal = executor.submit(() -> ProjectUtilMain.run(new String[] { "verify-file", 
+              "file_path=" + file, "cksum_url=" + cksum.toUri(), "watch=true", "watch_debounce=50", "watch_timeout=" + (3 + 2 * latency / 1000) }));
+
+      // Edit the protected file, and leave it edited until the watch times out
+      Thread.sleep(1000 + latency);
+      Files.write(file, "<project><edited/></project>".getBytes(StandardCharsets.UTF_8));
+
+      assertEquals(Integer.valueOf(1), goal.get());
+      assertEquals("<project><edited/></project>", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
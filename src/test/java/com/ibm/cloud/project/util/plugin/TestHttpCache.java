@@ -0,0 +1,189 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestHttpCache {
+
+  static final String BODY = "64666CCB597DE6BA71A7EF7437402F33";
+  static final String ETAG = "\"v1\"";
+
+  HttpServer server;
+  AtomicInteger fullResponses = new AtomicInteger();
+  AtomicInteger notModified = new AtomicInteger();
+  String cacheControl;
+
+  @Before
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/cksum.txt", this::handle);
+    server.start();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    if( ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match")) ) {
+      notModified.incrementAndGet();
+      exchange.sendResponseHeaders(304, -1);
+      exchange.close();
+      return;
+    }
+    fullResponses.incrementAndGet();
+    byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("ETag", ETAG);
+    exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+    exchange.sendResponseHeaders(200, body.length);
+    try( OutputStream out = exchange.getResponseBody() ) {
+      out.write(body);
+    }
+  }
+
+  private URL url() throws IOException {
+    return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/cksum.txt");
+  }
+
+  @Test
+  public void testRevalidate() {
+
+    cacheControl = "max-age=0";
+    try {
+      HttpCache cache = new HttpCache(Files.createTempDirectory("http").toString(), 0);
+      assertEquals(BODY, read(cache.open(url())));
+      assertEquals(BODY, read(cache.open(url())));
+      assertEquals("Expected one full response", 1, fullResponses.get());
+      assertEquals("Expected one revalidation", 1, notModified.get());
+      assertEquals(1, cache.getRevalidations());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testFresh() {
+
+    cacheControl = "public, max-age=60";
+    try {
+      HttpCache cache = new HttpCache(Files.createTempDirectory("http").toString(), 0);
+      assertEquals(BODY, read(cache.open(url())));
+      assertEquals(BODY, read(cache.open(url())));
+      assertEquals("Expected one request", 1, fullResponses.get() + notModified.get());
+      assertEquals(1, cache.getHits());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testNoStore() {
+
+    cacheControl = "no-store";
+    try {
+      HttpCache cache = new HttpCache(Files.createTempDirectory("http").toString(), 0);
+      assertEquals(BODY, read(cache.open(url())));
+      assertEquals(BODY, read(cache.open(url())));
+      assertEquals("Expected no stored response", 2, fullResponses.get());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testEviction() {
+
+    cacheControl = "max-age=60";
+    try {
+      HttpCache cache = new HttpCache(Files.createTempDirectory("http").toString(), 1);
+      assertEquals(BODY, read(cache.open(url())));
+      assertEquals(BODY, read(cache.open(url())));
+      assertEquals("Expected the entry to be evicted", 2, fullResponses.get());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testConcurrentGoals() {
+
+    cacheControl = "max-age=60";
+    try {
+      MojoUtil.useHttpCache(true, Files.createTempDirectory("http").toString(), 1, new SystemStreamLog());
+      try {
+        assertEquals(BODY, MojoUtil.downloadText(url()));
+
+        // Another goal using and releasing its own cache meanwhile
+        Thread other = new Thread(() -> {
+          try {
+            MojoUtil.useHttpCache(true, Files.createTempDirectory("http").toString(), 1, new SystemStreamLog());
+            MojoUtil.releaseHttpCache(new SystemStreamLog());
+          }
+          catch (IOException e) {
+            // the cache of this goal is checked below
+          }
+        });
+        other.start();
+        other.join();
+
+        assertEquals(BODY, MojoUtil.downloadText(url()));
+        assertEquals("Expected this goal's cache still in use", 1, fullResponses.get());
+      }
+      finally {
+        MojoUtil.releaseHttpCache(new SystemStreamLog());
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private static String read(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try( InputStream in = inputStream ) {
+      byte[] buff = new byte[1024];
+      int n;
+      while( (n = in.read(buff)) != -1 )
+        bytes.write(buff, 0, n);
+    }
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+}
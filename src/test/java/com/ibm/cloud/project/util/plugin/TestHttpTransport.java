@@ -0,0 +1,136 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestHttpTransport {
+
+  HttpServer server;
+  AtomicInteger active = new AtomicInteger();
+  AtomicInteger maxActive = new AtomicInteger();
+
+  @Before
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/ok", this::handle);
+    server.createContext("/missing", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    int n = active.incrementAndGet();
+    maxActive.accumulateAndGet(n, Math::max);
+    try {
+      Thread.sleep(50);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      // Before responding, since the client may start its next request as soon as it has the body
+      active.decrementAndGet();
+    }
+    byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(200, body.length);
+    try( OutputStream out = exchange.getResponseBody() ) {
+      out.write(body);
+    }
+  }
+
+  private URL url(String path) throws IOException {
+    return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+  }
+
+  @Test
+  public void testConnectionBound() {
+
+    HttpTransport transport = new HttpTransport(1000, 1000, 2);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for( int k=0; k<8; ++k )
+        results.add(executor.submit(() -> {
+          try( InputStream in = transport.openStream(url("/ok")) ) {
+            return in.read(new byte[16]);
+          }
+        }));
+      for( Future<Integer> result : results )
+        assertEquals(2, result.get().intValue());
+
+      assertEquals("unexpected request count", 8, transport.getRequests());
+      assertTrue("Too many concurrent connections: "+maxActive.get(), maxActive.get() <= 2);
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testErrorStatus() {
+
+    HttpTransport transport = new HttpTransport(1000, 1000, 1);
+    try {
+      transport.openStream(url("/missing")).close();
+      fail("Expected IOException for HTTP 404");
+    }
+    catch (IOException e) {
+      assertTrue(e.getMessage().contains("404"));
+    }
+
+    // The permit must be released after a failed request
+    try( InputStream in = transport.openStream(url("/ok")) ) {
+      assertEquals('o', in.read());
+    }
+    catch (IOException e) {
+      fail(e.toString());
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static com.ibm.cloud.project.util.plugin.MojoUtil.getMD5Digest;
+import static com.ibm.cloud.project.util.plugin.MojoUtil.getPomCoordinate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.shared.transfer.artifact.ArtifactCoordinate;
+import org.apache.maven.shared.transfer.artifact.DefaultArtifactCoordinate;
+import org.junit.Test;
+
+public class TestLocalRepository {
+
+  static String parentPomPath = "src/test/resources/testcase-parent-pom.xml";
+
+  @Test
+  public void testInstallPom() {
+
+    try {
+      Path repo = Files.createTempDirectory("repo");
+      ArtifactCoordinate coordinate = getPomCoordinate(parentPomPath);
+
+      Path installed = LocalRepository.installPom(repo, coordinate, Paths.get(parentPomPath));
+      assertEquals(repo.resolve("dev/appsody/spring-boot2-stack/0.3.7/spring-boot2-stack-0.3.7.pom"), installed);
+      assertEquals(getMD5Digest(new File(parentPomPath)), getMD5Digest(installed.toFile()));
+
+      Properties remotes = new Properties();
+      try( InputStream in = Files.newInputStream(installed.resolveSibling("_remote.repositories")) ) {
+        remotes.load(in);
+      }
+      assertEquals("", remotes.getProperty("spring-boot2-stack-0.3.7.pom>"));
+
+      DefaultArtifactCoordinate next = new DefaultArtifactCoordinate();
+      next.setGroupId(coordinate.getGroupId());
+      next.setArtifactId(coordinate.getArtifactId());
+      next.setVersion("0.3.8");
+      next.setExtension("pom");
+      LocalRepository.installPom(repo, next, Paths.get(parentPomPath));
+
+      Metadata metadata;
+      try( InputStream in = Files.newInputStream(repo.resolve("dev/appsody/spring-boot2-stack/maven-metadata-local.xml")) ) {
+        metadata = new MetadataXpp3Reader().read(in, false);
+      }
+      assertEquals(Arrays.asList("0.3.7", "0.3.8"), metadata.getVersioning().getVersions());
+      assertEquals("0.3.8", metadata.getVersioning().getRelease());
+
+      String indexDir = Files.createTempDirectory("index").toString();
+      assertEquals("0.3.8", VersionIndex.load(indexDir, repo, "dev.appsody", "spring-boot2-stack").highest("[0.3,0.4)"));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testIsPlainPom() {
+    DefaultArtifactCoordinate coordinate = new DefaultArtifactCoordinate();
+    coordinate.setGroupId("dev.appsody");
+    coordinate.setArtifactId("stack");
+    coordinate.setVersion("1.0");
+    assertTrue(LocalRepository.isPlainPom(coordinate));
+    coordinate.setVersion("1.0-SNAPSHOT");
+    assertFalse(LocalRepository.isPlainPom(coordinate));
+    coordinate.setVersion("${revision}");
+    assertFalse(LocalRepository.isPlainPom(coordinate));
+  }
+}
@@ -29,7 +29,18 @@ public class TestMessages {
         Messages.MISSING_POM_ELEMENT,
         Messages.POM_INSTALL_FAIL,
         Messages.BAD_PARENT_POM_REF,
-        Messages.PARENT_POM_VERSION_MISMATCH
+        Messages.PARENT_POM_VERSION_MISMATCH,
+        Messages.MISSING_CHILD_POM,
+        Messages.CHILD_POM_MISMATCH,
+        Messages.CHILD_POM_FAILURES,
+        Messages.VERIFIED_CHILD_POMS,
+        Messages.REPO_MISMATCH,
+        Messages.VERIFIED_REPO,
+        Messages.QUARANTINED_FILE,
+        Messages.CHANGED_RANGES,
+        Messages.DELTA_REPAIRED,
+        Messages.WATCHING_FILE,
+        Messages.VERIFIED_PROTECTED_FILE
         };
 
     for( String key : keys ) {
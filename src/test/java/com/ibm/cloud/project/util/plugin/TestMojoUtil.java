@@ -25,7 +25,10 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.shared.transfer.artifact.ArtifactCoordinate;
@@ -130,4 +133,33 @@ public class TestMojoUtil {
     }
     
   }
+
+  @Test
+  public void testReplaceFileVerified() {
+
+    try {
+      URL sourceURL = new File(parentPomPath).toURI().toURL();
+      File subjectFile = File.createTempFile("test", ".xml");
+      try {
+        Files.write(subjectFile.toPath(), "modified".getBytes(StandardCharsets.UTF_8));
+
+        try {
+          replaceFile(sourceURL, subjectFile, DigestAlgorithm.MD5, "00000000000000000000000000000000");
+          fail("Expected IOException for a reference digest mismatch");
+        }
+        catch (IOException e) {
+          assertEquals("Subject file changed by failed replacement", "modified", new String(Files.readAllBytes(subjectFile.toPath()), StandardCharsets.UTF_8));
+        }
+
+        replaceFile(sourceURL, subjectFile, DigestAlgorithm.MD5, parentPomChecksum);
+        assertEquals("Replace file failed", parentPomChecksum, getMD5Digest(subjectFile));
+      }
+      finally {
+        subjectFile.delete();
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
 }
@@ -0,0 +1,105 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+public class TestPomCoordinateReader {
+
+  static final String GROUP = "/project/groupId";
+  static final String ARTIFACT = "/project/artifactId";
+  static final String VERSION = "/project/version";
+  static final String PARENT_VERSION = "/project/parent/version";
+
+  @Test
+  public void testNestedElements() {
+
+    try {
+      Path pom = write(
+          "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" +
+          "  <parent><groupId>p</groupId><version>[1.0,2.0)</version></parent>\n" +
+          "  <dependencies><dependency><groupId>d</groupId><version>9</version></dependency></dependencies>\n" +
+          "  <groupId>g</groupId>\n" +
+          "  <artifactId><![CDATA[a]]></artifactId>\n" +
+          "  <version>1.2.3</version>\n" +
+          "</project>");
+
+      Map<String,String> map = PomCoordinateReader.read(pom.toString(), GROUP, ARTIFACT, VERSION, PARENT_VERSION);
+      assertEquals("g", map.get(GROUP));
+      assertEquals("a", map.get(ARTIFACT));
+      assertEquals("1.2.3", map.get(VERSION));
+      assertEquals("[1.0,2.0)", map.get(PARENT_VERSION));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testStopsWhenFound() {
+
+    try {
+      // Never reaches the malformed remainder of the document
+      Path pom = write("<project><groupId>g</groupId><version>1</version><build><</build>");
+
+      Map<String,String> map = PomCoordinateReader.read(pom.toString(), GROUP, VERSION);
+      assertEquals("g", map.get(GROUP));
+      assertEquals("1", map.get(VERSION));
+
+      map = PomCoordinateReader.read(write("<project><groupId>g</groupId></project>").toString(), GROUP, VERSION);
+      assertFalse("Expected a missing element to be absent", map.containsKey(VERSION));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testRejectsDoctype() {
+
+    try {
+      Path pom = write(
+          "<?xml version=\"1.0\"?>\n" +
+          "<!DOCTYPE project [ <!ENTITY v SYSTEM \"file:///etc/hostname\"> ]>\n" +
+          "<project><version>&v;</version></project>");
+      PomCoordinateReader.read(pom.toString(), VERSION);
+      fail("Expected an external entity to be refused");
+    }
+    catch (XMLStreamException e) {
+      // expected
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private static Path write(String content) throws Exception {
+    Path pom = Files.createTempFile("pom", ".xml");
+    pom.toFile().deleteOnExit();
+    Files.write(pom, content.getBytes(StandardCharsets.UTF_8));
+    return pom;
+  }
+}
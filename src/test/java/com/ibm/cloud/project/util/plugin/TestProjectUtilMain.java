@@ -0,0 +1,31 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestProjectUtilMain {
+
+  @Test
+  public void testRun() {
+    assertEquals(0, ProjectUtilMain.run(new String[] { "check-version", "range_spec=[0.3,0.4)", "version=0.3.7" }));
+    assertEquals(1, ProjectUtilMain.run(new String[] { "check-version", "range_spec=[0.3,0.4)", "version=0.4" }));
+    assertEquals(0, ProjectUtilMain.run(new String[] { "gen-cksum", "file_path=src/test/resources/testcase-parent-pom.xml" }));
+    assertEquals(1, ProjectUtilMain.run(new String[] { "check-parent-pom", "parent_path=pom.xml" }));
+    assertEquals(1, ProjectUtilMain.run(new String[] {}));
+  }
+}
@@ -0,0 +1,203 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Random;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+public class TestReferenceStore {
+
+  @Test
+  public void testRestoreLinked() {
+
+    try {
+      Path dir = Files.createTempDirectory("store");
+      Path source = write(dir.resolve("reference.bin"), content(1));
+      String digest = MojoUtil.getDigest(source.toFile(), DigestAlgorithm.SHA256);
+
+      ReferenceStore store = new ReferenceStore(dir.resolve("store").toString(), 0, true);
+      assertFalse(store.restore(DigestAlgorithm.SHA256, digest, dir.resolve("subject.bin").toFile()));
+      store.add(DigestAlgorithm.SHA256, digest, source);
+      assertTrue(store.contains(DigestAlgorithm.SHA256, digest));
+
+      Path file = write(dir.resolve("subject.bin"), "damaged".getBytes(StandardCharsets.UTF_8));
+      assertTrue(store.restore(DigestAlgorithm.SHA256, digest, file.toFile()));
+      assertArrayEquals(content(1), Files.readAllBytes(file));
+      assertEquals(1, store.getLinked());
+      assertEquals(1, store.getHits());
+      assertEquals(1, store.getMisses());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testRestoreCopied() {
+
+    try {
+      Path dir = Files.createTempDirectory("store");
+      Path source = write(dir.resolve("reference.bin"), content(1));
+      String digest = MojoUtil.getDigest(source.toFile(), DigestAlgorithm.SHA256);
+
+      ReferenceStore store = new ReferenceStore(dir.resolve("store").toString(), 0, false);
+      store.add(DigestAlgorithm.SHA256, digest, source);
+
+      Path file = write(dir.resolve("subject.bin"), "damaged".getBytes(StandardCharsets.UTF_8));
+      Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+      assertTrue(store.restore(DigestAlgorithm.SHA256, digest, file.toFile()));
+      assertArrayEquals(content(1), Files.readAllBytes(file));
+      assertEquals(0, store.getLinked());
+      assertEquals("Expected the file's permissions kept", "rw-r-----", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testModifiedThroughLink() {
+
+    try {
+      Path dir = Files.createTempDirectory("store");
+      Path source = write(dir.resolve("reference.bin"), content(1));
+      String digest = MojoUtil.getDigest(source.toFile(), DigestAlgorithm.SHA256);
+
+      ReferenceStore store = new ReferenceStore(dir.resolve("store").toString(), 0, true);
+      store.add(DigestAlgorithm.SHA256, digest, source);
+      Path file = dir.resolve("subject.bin");
+      assertTrue(store.restore(DigestAlgorithm.SHA256, digest, file.toFile()));
+
+      // An in-place edit of the linked file also changes the entry
+      file.toFile().setWritable(true);
+      Files.write(file, content(2));
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+      assertFalse("Expected a modified entry dropped", store.contains(DigestAlgorithm.SHA256, digest));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testEviction() {
+
+    try {
+      Path dir = Files.createTempDirectory("store");
+      ReferenceStore store = new ReferenceStore(dir.resolve("store").toString(), 2 * content(1).length + 100, true);
+      String[] digests = new String[3];
+      for( int k = 0; k < 3; ++k ) {
+        Path source = write(dir.resolve("reference" + k + ".bin"), content(k));
+        digests[k] = MojoUtil.getDigest(source.toFile(), DigestAlgorithm.SHA256);
+        store.add(DigestAlgorithm.SHA256, digests[k], source);
+        Thread.sleep(20);
+      }
+      // The oldest entry was used most recently
+      assertTrue(store.restore(DigestAlgorithm.SHA256, digests[0], dir.resolve("subject.bin").toFile()));
+
+      store.evict();
+      assertTrue(store.contains(DigestAlgorithm.SHA256, digests[0]));
+      assertFalse("Expected least recently used entry evicted", store.contains(DigestAlgorithm.SHA256, digests[1]));
+      assertTrue(store.contains(DigestAlgorithm.SHA256, digests[2]));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testConcurrentGoals() {
+
+    try {
+      Path dir = Files.createTempDirectory("store");
+      Path source = write(dir.resolve("reference.bin"), content(5));
+      String digest = MojoUtil.getDigest(source.toFile(), DigestAlgorithm.SHA256);
+
+      MojoUtil.useReferenceStore(true, dir.resolve("store").toString(), 1, true, new SystemStreamLog());
+      try {
+        MojoUtil.storeReference(DigestAlgorithm.SHA256, digest, source);
+
+        // Another goal using and releasing its own store meanwhile
+        Thread other = new Thread(() -> {
+          MojoUtil.useReferenceStore(true, dir.resolve("other").toString(), 1, true, new SystemStreamLog());
+          MojoUtil.releaseReferenceStore(new SystemStreamLog());
+        });
+        other.start();
+        other.join();
+
+        Path file = write(dir.resolve("subject.bin"), "damaged".getBytes(StandardCharsets.UTF_8));
+        assertTrue("Expected this goal's store still in use", MojoUtil.restoreReference(DigestAlgorithm.SHA256, digest, file.toFile()));
+        assertArrayEquals(content(5), Files.readAllBytes(file));
+      }
+      finally {
+        MojoUtil.releaseReferenceStore(new SystemStreamLog());
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testVerifyFileFromStore() {
+
+    try {
+      Path dir = Files.createTempDirectory("store");
+      Path source = write(dir.resolve("reference.bin"), content(1));
+      Path cksum = write(dir.resolve("reference.bin.sha256"), MojoUtil.getDigest(source.toFile(), DigestAlgorithm.SHA256).getBytes(StandardCharsets.UTF_8));
+      Path file = write(dir.resolve("subject.bin"), "damaged".getBytes(StandardCharsets.UTF_8));
+      String[] args = { "verify-file", "file_path=" + file, "cksum_url=" + cksum.toUri(), "ref_url=" + source.toUri(), 
+              "replace_on_fail=true", "reference_store=true", "reference_store_dir=" + dir.resolve("store") };
+
+      assertEquals(0, ProjectUtilMain.run(args));
+      assertArrayEquals(content(1), Files.readAllBytes(file));
+
+      // Restored from the store, without the reference
+      Files.delete(source);
+      Files.delete(file);
+      write(file, "damaged again".getBytes(StandardCharsets.UTF_8));
+      assertEquals(0, ProjectUtilMain.run(args));
+      assertArrayEquals(content(1), Files.readAllBytes(file));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private static byte[] content(int seed) {
+    byte[] content = new byte[32 * 1024];
+    new Random(seed).nextBytes(content);
+    return content;
+  }
+
+  private static Path write(Path path, byte[] content) throws Exception {
+    Files.write(path, content);
+    return path;
+  }
+
+}
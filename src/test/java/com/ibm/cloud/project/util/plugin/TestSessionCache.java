@@ -0,0 +1,82 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Test;
+
+public class TestSessionCache {
+
+  static String parentPomPath = "src/test/resources/testcase-parent-pom.xml";
+  static String pomPath = "src/test/resources/testcase-pom.xml";
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testSharedBySession() {
+
+    MavenSession session = new MavenSession(null, new DefaultRepositorySystemSession(), new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+    assertSame("Expected one cache per session", SessionCache.get(session), SessionCache.get(session));
+    assertNotSame("Expected a private cache without a session", SessionCache.get(null), SessionCache.get(null));
+  }
+
+  @Test
+  public void testCoordinates() {
+
+    try {
+      SessionCache cache = new SessionCache();
+      for( int k=0; k<3; ++k ) {
+        assertEquals("dev.appsody:spring-boot2-stack:pom:0.3.7", cache.getPomCoordinate(parentPomPath).toString());
+        assertEquals("dev.appsody:spring-boot2-stack:pom:[0.3, 0.4)", cache.getParentPomCoordinate(pomPath).toString());
+      }
+      assertEquals("Expected one parse per POM", 2, cache.getMisses());
+      assertEquals(4, cache.getHits());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testModifiedPom() {
+
+    try {
+      Path pom = Files.createTempFile("pom", ".xml");
+      pom.toFile().deleteOnExit();
+      Files.write(pom, "<project><groupId>g</groupId><artifactId>a</artifactId><version>1</version></project>".getBytes(StandardCharsets.UTF_8));
+
+      SessionCache cache = new SessionCache();
+      assertEquals("g:a:pom:1", cache.getPomCoordinate(pom.toString()).toString());
+
+      Files.write(pom, "<project><groupId>g</groupId><artifactId>a</artifactId><version>22</version></project>".getBytes(StandardCharsets.UTF_8));
+      assertEquals("Expected a changed POM to be parsed again", "g:a:pom:22", cache.getPomCoordinate(pom.toString()).toString());
+      assertEquals(2, cache.getMisses());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+}
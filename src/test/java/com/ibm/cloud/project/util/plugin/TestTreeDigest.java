@@ -0,0 +1,125 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.junit.Test;
+
+public class TestTreeDigest {
+
+  private static final int CHUNK = TreeDigest.CHUNK_SIZE;
+
+  @Test
+  public void testParallelMatchesSequential() {
+
+    try {
+      TreeDigest tree = (TreeDigest) DigestAlgorithm.forName("tree-sha256");
+      assertEquals("tree-sha256", tree.getName());
+
+      for( int size : new int[] { 0, 1, CHUNK, CHUNK + 1, 3 * CHUNK + 5 } ) {
+        byte[] content = random(size);
+        File file = write(content);
+
+        DigestProvider.Hasher hasher = tree.newHasher();
+        // Uneven updates, straddling chunk boundaries
+        for( int offset = 0; offset < size; offset += 1000003 )
+          hasher.update(content, offset, Math.min(1000003, size - offset));
+
+        assertArrayEquals("Size "+size, hasher.digest(), tree.digest(file));
+      }
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testSingleChunk() {
+
+    try {
+      // One chunk is the leaf digest, H(0x00 || content)
+      TreeDigest tree = TreeDigest.of(DigestAlgorithm.MD5);
+      DigestProvider.Hasher leaf = DigestAlgorithm.MD5.newHasher();
+      leaf.update(new byte[] { 0, 'a', 'b', 'c' }, 0, 4);
+      assertEquals(DatatypeConverter.printHexBinary(leaf.digest()), 
+              MojoUtil.getDigest(write("abc".getBytes("UTF-8")), tree));
+
+      assertEquals(tree, DigestAlgorithm.detect("tree-md5:" + DatatypeConverter.printHexBinary(leaf.digest())));
+      assertFalse("Expected a tree digest to differ from a plain digest", 
+              MojoUtil.getDigest(write("abc".getBytes("UTF-8")), DigestAlgorithm.MD5).equals(DatatypeConverter.printHexBinary(leaf.digest())));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testChangedRanges() {
+
+    try {
+      TreeDigest tree = TreeDigest.of(DigestAlgorithm.XXH64);
+      byte[] content = random(3 * CHUNK + 100);
+      TreeDigest.Chunks reference = tree.chunks(write(content));
+
+      StringWriter text = new StringWriter();
+      reference.write(text);
+      reference = TreeDigest.Chunks.read(new StringReader(text.toString()));
+      assertEquals(4, reference.digests.size());
+      assertEquals(3L * CHUNK + 100, reference.size);
+
+      content[CHUNK + 7] ^= 1;
+      content[2 * CHUNK] ^= 1;
+      TreeDigest.Chunks local = tree.chunks(write(content));
+      assertEquals(CHUNK + "-" + 3L * CHUNK, TreeDigest.Chunks.format(local.changedRanges(reference)));
+
+      // Truncated: the trailing range changed
+      byte[] truncated = new byte[CHUNK + 10];
+      System.arraycopy(content, 0, truncated, 0, truncated.length);
+      truncated[CHUNK + 7] ^= 1;
+      local = tree.chunks(write(truncated));
+      assertEquals((CHUNK) + "-" + (3L * CHUNK + 100), TreeDigest.Chunks.format(local.changedRanges(reference)));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private static byte[] random(int size) {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    return content;
+  }
+
+  private static File write(byte[] content) throws Exception {
+    Path file = Files.createTempFile("tree", ".bin");
+    file.toFile().deleteOnExit();
+    Files.write(file, content);
+    return file.toFile();
+  }
+
+}
@@ -0,0 +1,186 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestVerifyPipeline {
+
+  private static final long DELAY = 1000;
+
+  HttpServer server;
+  byte[] reference;
+  AtomicLong served = new AtomicLong();
+
+  @Before
+  public void startServer() throws Exception {
+    reference = new byte[256 * 1024];
+    new Random(1).nextBytes(reference);
+    Path source = Files.createTempFile("reference", ".bin");
+    Files.write(source, reference);
+    byte[] cksum = MojoUtil.getMD5Digest(source.toFile()).getBytes(StandardCharsets.UTF_8);
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/cksum", exchange -> respond(exchange, cksum, DELAY, cksum.length));
+    server.createContext("/ref", exchange -> respond(exchange, reference, DELAY, reference.length));
+    // About 13 seconds to send in full
+    server.createContext("/slow-ref", exchange -> respond(exchange, reference, 0, 1024));
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private void respond(HttpExchange exchange, byte[] content, long delay, int chunk) throws IOException {
+    try {
+      Thread.sleep(delay);
+      exchange.sendResponseHeaders(200, content.length);
+      try( OutputStream out = exchange.getResponseBody() ) {
+        for( int offset = 0; offset < content.length; offset += chunk ) {
+          out.write(content, offset, Math.min(chunk, content.length - offset));
+          out.flush();
+          served.addAndGet(Math.min(chunk, content.length - offset));
+          if( chunk < content.length )
+            Thread.sleep(50);
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void testStagesOverlap() {
+
+    try {
+      Path dir = Files.createTempDirectory("pipeline");
+      Path file = dir.resolve("subject.bin");
+      Files.write(file, "damaged".getBytes(StandardCharsets.UTF_8));
+
+      long start = System.currentTimeMillis();
+      assertEquals(0, ProjectUtilMain.run(new String[] { "verify-file", "file_path=" + file, "algorithm=md5",
+              "cksum_url=" + url("/cksum"), "ref_url=" + url("/ref"), "replace_on_fail=true" }));
+      long elapsed = System.currentTimeMillis() - start;
+
+      assertArrayEquals(reference, Files.readAllBytes(file));
+      // The cksum and reference fetches each take DELAY, and run at the same time
+      assertTrue("Expected overlapping fetches, took: " + elapsed + "ms", elapsed < 2 * DELAY - 200);
+      assertEquals("Expected no temporary files", 1, count(dir));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testCancelOnMatch() {
+
+    try {
+      Path dir = Files.createTempDirectory("pipeline");
+      Path file = dir.resolve("subject.bin");
+      Files.write(file, reference);
+
+      long start = System.currentTimeMillis();
+      assertEquals(0, ProjectUtilMain.run(new String[] { "verify-file", "file_path=" + file,
+              "cksum_url=" + url("/cksum"), "ref_url=" + url("/slow-ref"), "replace_on_fail=true" }));
+      long elapsed = System.currentTimeMillis() - start;
+      assertTrue("Expected not to wait for the reference, took: " + elapsed + "ms", elapsed < 3 * DELAY);
+
+      long deadline = System.currentTimeMillis() + 3000;
+      while( count(dir) > 1 && System.currentTimeMillis() < deadline )
+        Thread.sleep(20);
+      assertEquals("Expected the prefetch deleted", 1, count(dir));
+      assertTrue("Expected the prefetch stopped", served.get() < reference.length);
+      assertArrayEquals(reference, Files.readAllBytes(file));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testInstallChecksDigest() {
+
+    try {
+      Path dir = Files.createTempDirectory("pipeline");
+      Path file = dir.resolve("subject.bin");
+      Files.write(file, "local".getBytes(StandardCharsets.UTF_8));
+
+      Prefetch prefetch = Prefetch.start(new URL(url("/ref")), file.toFile(), MojoUtil.PIPELINE);
+      try {
+        prefetch.install(file.toFile(), DigestAlgorithm.MD5, "00000000000000000000000000000000");
+        fail("Expected a digest mismatch");
+      }
+      catch (IOException e) {
+        assertTrue(e.getMessage(), e.getMessage().startsWith("Reference digest mismatch"));
+      }
+      assertEquals("local", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+      assertEquals("Expected no temporary files", 1, count(dir));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testHashWhileFetching() {
+
+    try {
+      Path file = Files.createTempFile("subject", ".bin");
+      Files.write(file, reference);
+      assertTrue(MojoUtil.verifyFileIntegrity(file.toFile(), new URL(url("/cksum")), DigestAlgorithm.MD5, null));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private String url(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+
+  private static long count(Path dir) throws IOException {
+    try( Stream<Path> files = Files.list(dir) ) {
+      return files.count();
+    }
+  }
+
+}
@@ -0,0 +1,130 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static com.ibm.cloud.project.util.plugin.MojoUtil.getDigest;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestVerifyRepoMojo {
+
+  @Test
+  public void testVerifyRepository() {
+
+    try {
+      Path repo = Files.createTempDirectory("repo");
+      String checkpointDir = Files.createTempDirectory("checkpoint").toString();
+      Path good = artifact(repo, "g/a/1.0/a-1.0.jar", "good", ".sha1");
+      Path bad = artifact(repo, "g/a/1.0/a-1.0.pom", "bad", ".md5");
+      Files.write(bad, "corrupt".getBytes(StandardCharsets.UTF_8));
+      old(bad);
+      artifact(repo, "g/b/2.0/b-2.0.jar", "other", ".md5");
+      old(Files.write(repo.resolve("g/a/1.0/_remote.repositories"), "a-1.0.jar>central=".getBytes(StandardCharsets.UTF_8)));
+
+      RepositoryCheckpoint checkpoint = RepositoryCheckpoint.open(checkpointDir, repo);
+      VerifyRepoMojo.Result result = VerifyRepoMojo.verifyRepository(repo, checkpoint, 2);
+      assertEquals(2, result.verified);
+      assertEquals(0, result.unchanged);
+      assertEquals(Arrays.asList(bad), result.mismatches);
+      checkpoint.save();
+
+      // Only the changed file is verified again
+      Files.write(good, "gooD".getBytes(StandardCharsets.UTF_8));
+      old(good);
+      checkpoint = RepositoryCheckpoint.open(checkpointDir, repo);
+      result = VerifyRepoMojo.verifyRepository(repo, checkpoint, 2);
+      assertEquals(0, result.verified);
+      assertEquals(1, result.unchanged);
+      assertEquals(2, result.mismatches.size());
+
+      Path quarantine = Files.createTempDirectory("quarantine");
+      VerifyRepoMojo.quarantine(repo, bad, quarantine);
+      assertFalse(Files.exists(bad));
+      assertFalse(Files.exists(repo.resolve("g/a/1.0/a-1.0.pom.md5")));
+      assertTrue(Files.exists(quarantine.resolve("g/a/1.0/a-1.0.pom")));
+      assertTrue(Files.exists(quarantine.resolve("g/a/1.0/a-1.0.pom.md5")));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testRacyFileNotCheckpointed() {
+
+    try {
+      Path repo = Files.createTempDirectory("repo");
+      Path file = artifact(repo, "g/a/1.0/a-1.0.jar", "new", ".sha1");
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+
+      RepositoryCheckpoint checkpoint = RepositoryCheckpoint.open(Files.createTempDirectory("checkpoint").toString(), repo);
+      assertEquals(1, VerifyRepoMojo.verifyRepository(repo, checkpoint, 1).verified);
+      assertEquals(0, checkpoint.size());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testPurgedFileForgotten() {
+
+    try {
+      Path repo = Files.createTempDirectory("repo");
+      String checkpointDir = Files.createTempDirectory("checkpoint").toString();
+      artifact(repo, "g/a/1.0/a-1.0.jar", "kept", ".sha1");
+      Path purged = artifact(repo, "g/a/1.1-SNAPSHOT/a-1.1-SNAPSHOT.jar", "purged", ".sha1");
+
+      RepositoryCheckpoint checkpoint = RepositoryCheckpoint.open(checkpointDir, repo);
+      VerifyRepoMojo.verifyRepository(repo, checkpoint, 1);
+      checkpoint.save();
+      assertEquals(2, checkpoint.size());
+
+      Files.delete(purged);
+      checkpoint = RepositoryCheckpoint.open(checkpointDir, repo);
+      assertEquals(1, VerifyRepoMojo.verifyRepository(repo, checkpoint, 1).unchanged);
+      checkpoint.save();
+      assertEquals("Expected the purged file dropped", 1, RepositoryCheckpoint.open(checkpointDir, repo).size());
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private static Path artifact(Path repo, String path, String content, String extension) throws Exception {
+    Path file = repo.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    DigestAlgorithm algorithm = extension.equals(".sha1") ? DigestAlgorithm.SHA1 : DigestAlgorithm.MD5;
+    Path sidecar = file.resolveSibling(file.getFileName() + extension);
+    Files.write(sidecar, (getDigest(file.toFile(), algorithm).toLowerCase() + "  " + file.getFileName()).getBytes(StandardCharsets.UTF_8));
+    old(sidecar);
+    return old(file);
+  }
+
+  private static Path old(Path file) throws Exception {
+    return Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+  }
+}
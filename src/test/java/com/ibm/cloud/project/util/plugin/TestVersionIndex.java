@@ -0,0 +1,116 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestVersionIndex {
+
+  @Test
+  public void testHighest() {
+
+    try {
+      Path repo = Files.createTempDirectory("repo");
+      String indexDir = Files.createTempDirectory("index").toString();
+      for( String version : new String[] { "0.3.10", "0.3.9", "0.4", "0.4.0", "1.0-SNAPSHOT", "0.2" } )
+        install(repo, version);
+      Files.createDirectories(repo.resolve("dev/appsody/stack/0.5"));  // no POM
+
+      VersionIndex index = VersionIndex.load(indexDir, repo, "dev.appsody", "stack");
+      assertEquals(Arrays.asList("0.2", "0.3.9", "0.3.10", "0.4", "0.4.0"), index.getVersions());
+      assertEquals("0.3.10", index.highest("[0.3,0.4)"));
+      assertEquals("0.4.0", index.highest("[0.3,0.4]"));
+      assertEquals("0.4.0", index.highest("0.1"));
+      assertEquals("0.2", index.highest("(0.1,0.3.9)"));
+      assertNull(index.highest("[0.5,1)"));
+      assertNull(index.highest("(0.4,1)"));
+      assertNull(VersionIndex.load(indexDir, repo, "dev.appsody", "missing").highest("0"));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testRefresh() {
+
+    try {
+      Path repo = Files.createTempDirectory("repo");
+      String indexDir = Files.createTempDirectory("index").toString();
+      install(repo, "1.0");
+      Path gaDir = repo.resolve("dev/appsody/stack");
+      Files.setLastModifiedTime(gaDir, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+      assertEquals("1.0", VersionIndex.load(indexDir, repo, "dev.appsody", "stack").highest("[1,2)"));
+
+      install(repo, "1.1");
+      assertEquals("Expected a new install to be indexed", "1.1", VersionIndex.load(indexDir, repo, "dev.appsody", "stack").highest("[1,2)"));
+
+      // Listed in the metadata, so taken on trust without a POM
+      Files.createDirectories(gaDir.resolve("1.2"));
+      Files.write(gaDir.resolve("maven-metadata-local.xml"), 
+              "<metadata><versioning><versions><version>1.2</version></versions></versioning></metadata>".getBytes(StandardCharsets.UTF_8));
+      assertEquals("1.2", VersionIndex.load(indexDir, repo, "dev.appsody", "stack").highest("[1,2)"));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testPomAddedOrRemoved() {
+
+    try {
+      Path repo = Files.createTempDirectory("repo");
+      String indexDir = Files.createTempDirectory("index").toString();
+      install(repo, "1.0");
+      Path gaDir = repo.resolve("dev/appsody/stack");
+      Path pending = gaDir.resolve("1.1");
+      Files.createDirectories(pending);
+      Files.write(pending.resolve("stack-1.1.pom.lastUpdated"), "".getBytes(StandardCharsets.UTF_8));
+      Files.setLastModifiedTime(pending, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+      Files.setLastModifiedTime(gaDir, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+      assertEquals("1.0", VersionIndex.load(indexDir, repo, "dev.appsody", "stack").highest("[1,2)"));
+
+      // The GA directory is unchanged, only the version directory
+      Files.write(pending.resolve("stack-1.1.pom"), "<project/>".getBytes(StandardCharsets.UTF_8));
+      Files.setLastModifiedTime(gaDir, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+      assertEquals("Expected a completed download to be indexed", "1.1", VersionIndex.load(indexDir, repo, "dev.appsody", "stack").highest("[1,2)"));
+
+      Files.delete(pending.resolve("stack-1.1.pom"));
+      assertEquals("Expected a deleted POM to be dropped", "1.0", VersionIndex.load(indexDir, repo, "dev.appsody", "stack").highest("[1,2)"));
+    }
+    catch (Exception e) {
+      fail(e.toString());
+    }
+  }
+
+  private static void install(Path repo, String version) throws Exception {
+    Path dir = repo.resolve("dev/appsody/stack").resolve(version);
+    Files.createDirectories(dir);
+    Files.write(dir.resolve("stack-" + version + ".pom"), "<project/>".getBytes(StandardCharsets.UTF_8));
+  }
+}
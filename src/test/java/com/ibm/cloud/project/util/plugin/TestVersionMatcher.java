@@ -0,0 +1,62 @@
+/* Copyright 2020 IBM Corporation
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */    
+package com.ibm.cloud.project.util.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+
+public class TestVersionMatcher {
+
+  static final String[] RANGES = {
+      "[0.3,0.4)", "[0.3, 0.4]", "(0.3,0.4)", "(0.3.7,1]", "0.3", "[1.0.0,1.0.0]", 
+      "[1.0.0.beta,2)", "[1,2.0.0.final)", "[2097151,2097152)", "(,)" 
+  };
+
+  static final String[] VERSIONS = {
+      "0", "0.3", "0.3.0", "0.3.7", "0.4", "0.4.0.SNAPSHOT", "1", "1.0.0", "1.0.0.alpha", "1.0.0.beta", 
+      "1.5.9", "2", "2097151", "2097152", "2097151.2097151.2097151", " 0.3.7 ", "00.03.07"
+  };
+
+  @Test
+  public void testMatchesOSGi() {
+    for( String range : RANGES ) {
+      VersionRange osgi;
+      try {
+        osgi = VersionRange.valueOf(range);
+      }
+      catch (IllegalArgumentException e) {
+        continue;
+      }
+      for( String version : VERSIONS )
+        assertEquals(version+" in "+range, osgi.includes(Version.valueOf(version)), VersionMatcher.includes(range, version));
+    }
+  }
+
+  @Test
+  public void testPack() {
+    assertEquals(VersionMatcher.pack("1.0.0"), VersionMatcher.pack("1"));
+    assertEquals(VersionMatcher.pack("1.2.0"), VersionMatcher.pack("1.2"));
+    assertTrue(VersionMatcher.pack("0.3.10") > VersionMatcher.pack("0.3.9"));
+    assertTrue(VersionMatcher.pack("1") > VersionMatcher.pack("0.2097151.2097151"));
+    assertEquals(-1, VersionMatcher.pack("1.0.0.beta"));
+    assertEquals(-1, VersionMatcher.pack("2097152"));
+    assertEquals(-1, VersionMatcher.pack("1."));
+    assertEquals(-1, VersionMatcher.pack(""));
+  }
+}